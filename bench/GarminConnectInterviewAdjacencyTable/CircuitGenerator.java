@@ -0,0 +1,189 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/***
+ * Synthetic circuit generator, writes netlist files in input file format for scale and load testing.
+ * Gates are assigned to levels 1 ~ depth in order, and a gate on level L reads at least one node of level L-1
+ * and the rest from any lower level, so the circuit is acyclic and exactly depth levels deep unless a fault is injected.
+ * 
+ * eg:  java GarminConnectInterviewAdjacencyTable.CircuitGenerator --circuits 1000 --ni 16 --ng 1000 --fanin 2-6 --output corpus.txt
+ * 		--circuits N:       # of circuits (default 100)
+ * 		--ni A[-B], --ng A[-B]:  # of input pins and gates, fixed or uniform in [A, B] (default 1-16 / 10-1000)
+ * 		--fanin A-B:        # of wires of AND/OR gates (default 1-4), NOT gates always have one wire
+ * 		--fanin-dist D:     uniform, or geometric (small fan-in is more likely, capped at B)
+ * 		--depth D:          # of levels, 0 = random, any former node can be read (default 0)
+ * 		--mix A:O:N:        weights of AND, OR and NOT gates (default 1:1:1)
+ * 		--cycle-rate P:     probability that a circuit gets a cycle injected (default 0)
+ * 		--bad-index-rate P: probability that a circuit gets a wrong link index or gate type (default 0)
+ * 		--seed S, --output FILE
+ */
+public class CircuitGenerator {
+	public int minInput = 1, maxInput = 16;
+	public int minGate = 10, maxGate = 1000;
+	public int minFanIn = 1, maxFanIn = 4;
+	public boolean geometric = false;
+	public int depth = 0;
+	public int andWeight = 1, orWeight = 1, notWeight = 1;
+	public double cycleRate = 0, badIndexRate = 0;
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Pick NI, NG and the level of each gate
+	 * Step2: - For each gate, pick type by weights, then its wires from lower levels
+	 * Step3: - Inject a cycle: add a wire from gate h to gate g, where g is in the fan-in cone of h
+	 * 		  - Inject a bad index: a wire to gate NG+1 or input pin NI+1, or a gate type 4
+	 * @param  random
+	 * @return circuit in input file format, without line ending
+	 */
+	public String circuit(Random random){
+	//Step1: size and levels
+		int ni = between(random, minInput, maxInput);
+		int ng = between(random, minGate, maxGate);
+		int levels = (depth > 0) ? Math.min(depth, ng) : 0;
+		int[] level = new int[ng + 1];				//level[g] of gate g (1-based), input pins are level 0
+		int[] firstOfLevel = new int[levels + 2];	//gates of level L are firstOfLevel[L] ~ firstOfLevel[L+1]-1
+		if(levels > 0){
+			for(int l = 1; l <= levels + 1; ++l)
+				firstOfLevel[l] = 1 + (int)((long)(l - 1) * ng / levels);
+			for(int l = 1; l <= levels; ++l)
+				for(int g = firstOfLevel[l]; g < firstOfLevel[l + 1]; ++g)
+					level[g] = l;
+		}
+	//Step2: gates
+		int[] types = new int[ng + 1];
+		ArrayList<ArrayList<Integer>> wires = new ArrayList<ArrayList<Integer>>();
+		wires.add(null);
+		int totalWeight = andWeight + orWeight + notWeight;
+		for(int g = 1; g <= ng; ++g){
+			int pick = random.nextInt(totalWeight);
+			types[g] = (pick < andWeight) ? 1 : (pick < andWeight + orWeight) ? 2 : 3;
+			int numOfWire = (types[g] == 3) ? 1 : fanIn(random);
+			ArrayList<Integer> list = new ArrayList<Integer>();
+			for(int k = 0; k < numOfWire; ++k){
+				if(levels > 0){
+					int l = level[g];
+					if(k == 0)		//one wire from the level right below
+						list.add(l == 1 ? -(1 + random.nextInt(ni)) : between(random, firstOfLevel[l - 1], firstOfLevel[l] - 1));
+					else{
+						int from = random.nextInt(ni + firstOfLevel[l] - 1);
+						list.add(from < ni ? -(from + 1) : from - ni + 1);
+					}
+				}else{
+					int from = random.nextInt(ni + g - 1);
+					list.add(from < ni ? -(from + 1) : from - ni + 1);
+				}
+			}
+			wires.add(list);
+		}
+	//Step3: faults
+		if(random.nextDouble() < cycleRate){
+			int h = 1 + random.nextInt(ng);
+			ArrayList<Integer> cone = new ArrayList<Integer>();		//gates in fan-in cone of h, h included
+			boolean[] visited = new boolean[ng + 1];
+			cone.add(h);
+			visited[h] = true;
+			for(int i = 0; i < cone.size(); ++i){
+				for(int from: wires.get(cone.get(i))){
+					if(from > 0 && !visited[from]){
+						visited[from] = true;
+						cone.add(from);
+					}
+				}
+			}
+			int g = cone.get(random.nextInt(cone.size()));
+			if(types[g] == 3)
+				types[g] = 1;	//NOT gate only keeps its last wire, make it AND so both wires count
+			wires.get(g).add(h);
+		}
+		if(random.nextDouble() < badIndexRate){
+			int g = 1 + random.nextInt(ng);
+			switch(random.nextInt(3)){
+				case 0: wires.get(g).add(ng + 1); break;
+				case 1: wires.get(g).add(-(ni + 1)); break;
+				default: types[g] = 4; break;
+			}
+		}
+		StringBuilder circuit = new StringBuilder();
+		circuit.append(ni).append('\n').append(ng);
+		for(int g = 1; g <= ng; ++g){
+			circuit.append('\n').append(types[g]);
+			for(int from: wires.get(g))
+				circuit.append(' ').append(from);
+			circuit.append(" 0");
+		}
+		return circuit.toString();
+	}
+
+	/***
+	 * Write circuits into a file, with an ending line "0" so that the last circuit is read as well
+	 */
+	public void writeFile(String fileName, int numOfCircuit, Random random) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, false));
+		try{
+			for(int c = 0; c < numOfCircuit; ++c){
+				writer.write(circuit(random));
+				writer.write('\n');
+			}
+			writer.write("0\n");
+		}finally{
+			writer.close();
+		}
+	}
+
+	private int fanIn(Random random){
+		if(!geometric)
+			return between(random, minFanIn, maxFanIn);
+		int fanIn = minFanIn;
+		while(fanIn < maxFanIn && random.nextBoolean())
+			fanIn++;
+		return fanIn;
+	}
+
+	static int between(Random random, int min, int max){
+		return min + random.nextInt(max - min + 1);
+	}
+
+	/***
+	 * Parse "A" or "A-B" into {A, A} or {A, B}
+	 */
+	static int[] range(String value){
+		int dash = value.indexOf('-', 1);
+		if(dash < 0)
+			return new int[]{Integer.valueOf(value), Integer.valueOf(value)};
+		return new int[]{Integer.valueOf(value.substring(0, dash)), Integer.valueOf(value.substring(dash + 1))};
+	}
+
+	public static void main(String[] args) throws IOException {
+		CircuitGenerator generator = new CircuitGenerator();
+		int numOfCircuit = 100;
+		long seed = 1;
+		String output = null;
+		for(int i = 0; i < args.length; ++i){
+			String arg = args[i];
+			if(arg.equals("--circuits")) numOfCircuit = Integer.valueOf(args[++i]);
+			else if(arg.equals("--ni")){int[] r = range(args[++i]); generator.minInput = r[0]; generator.maxInput = r[1];}
+			else if(arg.equals("--ng")){int[] r = range(args[++i]); generator.minGate = r[0]; generator.maxGate = r[1];}
+			else if(arg.equals("--fanin")){int[] r = range(args[++i]); generator.minFanIn = r[0]; generator.maxFanIn = r[1];}
+			else if(arg.equals("--fanin-dist")) generator.geometric = args[++i].equals("geometric");
+			else if(arg.equals("--depth")) generator.depth = Integer.valueOf(args[++i]);
+			else if(arg.equals("--mix")){
+				String[] weights = args[++i].split(":");
+				generator.andWeight = Integer.valueOf(weights[0]);
+				generator.orWeight = Integer.valueOf(weights[1]);
+				generator.notWeight = Integer.valueOf(weights[2]);
+			}
+			else if(arg.equals("--cycle-rate")) generator.cycleRate = Double.valueOf(args[++i]);
+			else if(arg.equals("--bad-index-rate")) generator.badIndexRate = Double.valueOf(args[++i]);
+			else if(arg.equals("--seed")) seed = Long.valueOf(args[++i]);
+			else if(arg.equals("--output")) output = args[++i];
+			else throw new IllegalArgumentException("Unknown option " + arg);
+		}
+		if(output == null)
+			throw new IllegalArgumentException("Usage: java CircuitGenerator [options] --output FILE");
+		generator.writeFile(output, numOfCircuit, new Random(seed));
+	}
+}
@@ -0,0 +1,123 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Load-test harness: runs MainSimulator on netlist files (eg: written by CircuitGenerator), each run in a fresh JVM,
+ * and records wall time, peak RSS, peak heap and throughput.
+ * 
+ * eg:  java GarminConnectInterviewAdjacencyTable.LoadTest --runs 3 --jvm -Xmx512m corpus1.txt corpus2.txt -- --workers 4
+ * 		--runs N:     # of runs of each file (default 1)
+ * 		--jvm OPTION: option of the child JVM, can be repeated
+ * 		files:        netlist files to simulate
+ * 		-- ARGS:      the rest are passed to MainSimulator before the file names
+ */
+public class LoadTest {
+	public static void main(String[] args) throws Exception {
+		int runs = 1;
+		ArrayList<String> jvmOptions = new ArrayList<String>(), files = new ArrayList<String>(), simulatorArgs = new ArrayList<String>();
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("--runs")) runs = Integer.valueOf(args[++i]);
+			else if(args[i].equals("--jvm")) jvmOptions.add(args[++i]);
+			else if(args[i].equals("--")){
+				simulatorArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+				break;
+			}else files.add(args[i]);
+		}
+		System.out.println(String.format("%-24s %3s %9s %10s %10s %10s %12s %10s %10s", "file", "run", "circuits", "wall ms", "sim ms", "peak RSS MB", "peak heap MB", "circuit/s", "out MB/s"));
+		for(String file: files){
+			int numOfCircuit = countCircuits(file);
+			for(int run = 0; run < runs; ++run){
+				File output = File.createTempFile("loadtest", ".out");
+				output.deleteOnExit();
+				ArrayList<String> command = new ArrayList<String>();
+				command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+				command.addAll(jvmOptions);
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(Child.class.getName());
+				command.addAll(simulatorArgs);
+				command.add(file);
+				command.add(output.getPath());
+				long begin = System.nanoTime();
+				Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+				String result = null, line;
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				while((line = reader.readLine()) != null){
+					if(line.startsWith("LOADTEST "))
+						result = line;
+				}
+				int exit = process.waitFor();
+				double wall = (System.nanoTime() - begin) / 1e6;
+				if(exit != 0 || result == null){
+					System.out.println(String.format("%-24s %3d failed with exit code %d", new File(file).getName(), run, exit));
+					continue;
+				}
+				String[] fields = result.split(" ");	//LOADTEST simMillis peakRssKB peakHeapBytes
+				double sim = Double.valueOf(fields[1]);
+				long rss = Long.valueOf(fields[2]), heap = Long.valueOf(fields[3]);
+				System.out.println(String.format("%-24s %3d %9d %10.0f %10.0f %10.1f %12.1f %10.1f %10.1f", new File(file).getName(), run, numOfCircuit,
+						wall, sim, rss / 1024.0, heap / 1048576.0, numOfCircuit / (sim / 1000), output.length() / 1048576.0 / (sim / 1000)));
+				output.delete();
+			}
+		}
+	}
+
+	static int countCircuits(String file) throws IOException {
+		NetlistTokenizer tokenizer = new NetlistTokenizer(file);
+		int count = 0;
+		try{
+			while(tokenizer.next() != null)
+				count++;
+		}finally{
+			tokenizer.close();
+		}
+		return count;
+	}
+
+	/***
+	 * Entry point of the child JVM: run MainSimulator, then report simulation time, peak RSS and peak heap
+	 */
+	public static class Child {
+		public static void main(String[] args) throws IOException {
+			long begin = System.nanoTime();
+			MainSimulator.main(args);
+			double millis = (System.nanoTime() - begin) / 1e6;
+			long heap = 0;
+			List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+			for(MemoryPoolMXBean pool: pools){
+				if(pool.getType() == MemoryType.HEAP)
+					heap += pool.getPeakUsage().getUsed();
+			}
+			System.out.println("LOADTEST " + millis + " " + peakRss() + " " + heap);
+		}
+
+		/***
+		 * VmHWM of /proc/self/status in KB, 0 if it isn't Linux
+		 */
+		static long peakRss() throws IOException {
+			File status = new File("/proc/self/status");
+			if(!status.exists()) return 0;
+			BufferedReader reader = new BufferedReader(new FileReader(status));
+			try{
+				String line;
+				while((line = reader.readLine()) != null){
+					if(line.startsWith("VmHWM:"))
+						return Long.valueOf(line.replaceAll("[^0-9]", ""));
+				}
+			}finally{
+				reader.close();
+			}
+			return 0;
+		}
+	}
+}
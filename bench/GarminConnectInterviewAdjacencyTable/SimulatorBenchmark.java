@@ -0,0 +1,253 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/***
+ * Micro benchmark of both simulators and every evaluation path, so each speed-up or regression can be measured.
+ * Each benchmark runs for every combination of NI, NG and average fan-in, on a random acyclic circuit from CircuitGenerator.
+ * For each case it reports:
+ * 		ops/s:      operations per second (what an operation is depends on the benchmark, see rows/op)
+ * 		rows/s:     rows of truth table evaluated or written per second, comparable between benchmarks
+ * 		B/op:       bytes allocated per operation by the benchmark thread
+ * 		gc/s, gcms: garbage collections per second and milliseconds spent in GC during measurement
+ * 
+ * eg:  java GarminConnectInterviewAdjacencyTable.SimulatorBenchmark --bench bitParallel --ni 8,16 --ng 100,1000 --fanin 2,8
+ * 		--bench NAME:   run benchmarks whose name contains NAME (default all)
+ * 		--ni, --ng, --fanin LIST: comma separated values (default 4,8,12,16 / 10,100,1000 / 2,4)
+ * 		--time MS:      duration of each warm-up and measurement iteration (default 500)
+ * 		--iterations N: # of measurement iterations (default 3)
+ */
+public class SimulatorBenchmark {
+	static volatile long sink;		//results are folded into sink so that the JIT can't drop them
+
+	/***
+	 * One benchmark on one circuit
+	 */
+	static abstract class Bench {
+		final String name;
+		final long rowsPerOp;
+		Bench(String name, long rowsPerOp){
+			this.name = name;
+			this.rowsPerOp = rowsPerOp;
+		}
+		abstract long op() throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String filter = "";
+		int[] nis = {4, 8, 12, 16}, ngs = {10, 100, 1000}, fanIns = {2, 4};
+		long time = 500;
+		int iterations = 3;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("--bench")) filter = args[++i];
+			else if(args[i].equals("--ni")) nis = ints(args[++i]);
+			else if(args[i].equals("--ng")) ngs = ints(args[++i]);
+			else if(args[i].equals("--fanin")) fanIns = ints(args[++i]);
+			else if(args[i].equals("--time")) time = Long.valueOf(args[++i]);
+			else if(args[i].equals("--iterations")) iterations = Integer.valueOf(args[++i]);
+			else throw new IllegalArgumentException("Unknown option " + args[i]);
+		}
+		ForkJoinPool pool = new ForkJoinPool();
+		System.out.println(String.format("%-22s %3s %5s %5s %14s %14s %12s %8s %8s", "benchmark", "NI", "NG", "fanIn", "ops/s", "rows/s", "B/op", "gc/s", "gcms"));
+		for(int ni: nis){
+			for(int ng: ngs){
+				for(int fanIn: fanIns){
+					CircuitGenerator generator = new CircuitGenerator();
+					generator.minInput = generator.maxInput = ni;
+					generator.minGate = generator.maxGate = ng;
+					generator.minFanIn = 1;
+					generator.maxFanIn = 2 * fanIn - 1;		//average fan-in of AND/OR gates is fanIn
+					String circuit = generator.circuit(new Random(ni * 1000003L + ng * 31L + fanIn));
+					for(Bench bench: benches(circuit, ni, pool)){
+						if(bench.name.contains(filter))
+							measure(bench, ni, ng, fanIn, time, iterations);
+					}
+				}
+			}
+		}
+		pool.shutdown();
+	}
+
+	/***
+	 * All benchmarks on one circuit
+	 */
+	@SuppressWarnings("unchecked")
+	static ArrayList<Bench> benches(final String circuit, final int ni, ForkJoinPool pool) throws IOException {
+		ArrayList<Bench> benches = new ArrayList<Bench>();
+		final Boolean[][] truthTable = MainSimulator.createTruthTable(ni);
+		final int rows = truthTable.length;
+	//existing engines, one row per operation as MainSimulator of each package used to run them
+		benches.add(new Bench("nodeEdge.sort", 1){
+			int row = 0;
+			long op(){
+				Object outputPins = TopologicalSort.sort(truthTable[row++ & (rows - 1)], circuit, 0);
+				return outputPins.hashCode();
+			}
+		});
+		ArrayList<Object> DAGandTable = MainSimulator.constructDAGandAdjacencyTable(circuit);
+		final ArrayList<Node> graph = (ArrayList<Node>)DAGandTable.get(0);
+		final Integer[][] adjacencyTable = (Integer[][])DAGandTable.get(1);
+		benches.add(new Bench("adjacency.operation", 1){
+			int row = 0;
+			long op(){
+				Integer[][] copy = MainSimulator.deepCopyAdjacencyTable(adjacencyTable);
+				ArrayList<Node> result = BreadthFirstOperation.operation(truthTable[row++ & (rows - 1)], graph, copy, ni);
+				long bits = 0;
+				for(Node n: result){
+					if(n.outBit != null && n.outBit) bits++;
+					n.clear();
+				}
+				return bits;
+			}
+		});
+		benches.add(new Bench("createTruthTable", rows){
+			long op(){return MainSimulator.createTruthTable(ni).length;}
+		});
+	//new evaluation paths
+		final Netlist netlist = Netlist.parse(circuit);
+		final LevelizedSchedule schedule = LevelizedSchedule.compile(netlist);
+		benches.add(new Bench("netlist.compile", 0){
+			long op(){return LevelizedSchedule.compile(Netlist.parse(circuit)).order.length;}
+		});
+		final boolean[] values = new boolean[schedule.numOfNode];
+		benches.add(new Bench("schedule.evaluate", 1){
+			int row = 0;
+			long op(){
+				schedule.evaluate(truthTable[row++ & (rows - 1)], values);
+				return values[schedule.numOfNode - 1] ? 1 : 0;
+			}
+		});
+		benches.add(new Bench("bitParallel", rows){
+			long op(){return consume(BitParallelSimulator.simulate(schedule));}
+		});
+		benches.add(new Bench("wide", rows){
+			long op(){return consume(WideSimulator.simulate(schedule, null));}
+		});
+		final ForkJoinPool forkJoinPool = pool;
+		benches.add(new Bench("bitParallel.forkJoin", rows){
+			long op(){return consume(BitParallelSimulator.simulate(schedule, forkJoinPool));}
+		});
+		final CompiledEvaluator evaluator = CircuitCompiler.compile(schedule);
+		benches.add(new Bench("bitParallel.jit", rows){
+			long op(){return consume(BitParallelSimulator.simulate(schedule, evaluator, null));}
+		});
+		final IncrementalSimulator incremental = new IncrementalSimulator(schedule);
+		benches.add(new Bench("incremental", rows){
+			long op(){return consume(incremental.simulate());}
+		});
+	//input and output
+		final File file = File.createTempFile("circuits", ".txt");
+		file.deleteOnExit();
+		FileWriter fw = new FileWriter(file);
+		for(int k = 0; k < 100; ++k)
+			fw.write(circuit + "\n");
+		fw.write("0\n");
+		fw.close();
+		benches.add(new Bench("readFile", 0){
+			long op(){return MainSimulator.readFile(file.getPath()).size();}
+		});
+		benches.add(new Bench("tokenizer", 0){
+			long op() throws IOException {
+				NetlistTokenizer tokenizer = new NetlistTokenizer(file.getPath());
+				long count = 0;
+				while(tokenizer.next() != null) count++;
+				tokenizer.close();
+				return count;
+			}
+		});
+		final TruthTable table = BitParallelSimulator.simulate(schedule);
+		final TruthTableWriter writer = new TruthTableWriter(new NullChannel());
+		benches.add(new Bench("writer", rows){
+			long op() throws IOException {
+				writer.writeTruthTable(0, table);
+				return writer.size();
+			}
+		});
+		return benches;
+	}
+
+	/***
+	 * Warm up and measure one benchmark, then print one line of result
+	 */
+	static void measure(Bench bench, int ni, int ng, int fanIn, long time, int iterations) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		for(int i = 0; i < iterations; ++i)		//warm up
+			run(bench, time);
+		long ops = 0, nanos = 0, gcCount = -gcCount(), gcTime = -gcTime();
+		long allocated = -threads.getThreadAllocatedBytes(thread);
+		for(int i = 0; i < iterations; ++i){
+			long begin = System.nanoTime();
+			ops += run(bench, time);
+			nanos += System.nanoTime() - begin;
+		}
+		allocated += threads.getThreadAllocatedBytes(thread);
+		gcCount += gcCount();
+		gcTime += gcTime();
+		double seconds = nanos / 1e9;
+		System.out.println(String.format("%-22s %3d %5d %5d %14.1f %14.1f %12d %8.2f %8d", bench.name, ni, ng, fanIn,
+				ops / seconds, ops * bench.rowsPerOp / seconds, allocated / Math.max(ops, 1), gcCount / seconds, gcTime));
+	}
+
+	static long run(Bench bench, long time) throws Exception {
+		long end = System.nanoTime() + time * 1000000L, ops = 0, result = 0;
+		do{
+			result += bench.op();
+			ops++;
+		}while(System.nanoTime() < end);
+		sink += result;
+		return ops;
+	}
+
+	/***
+	 * Read a word of a simulated truth table, so the simulation can't be optimized away, and give its off-heap words back
+	 */
+	static long consume(TruthTable table){
+		long word = table.getWord(0, 0);
+		table.release();
+		return word;
+	}
+
+	static long gcCount(){
+		long count = 0;
+		for(GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(gc.getCollectionCount(), 0);
+		return count;
+	}
+
+	static long gcTime(){
+		long time = 0;
+		for(GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans())
+			time += Math.max(gc.getCollectionTime(), 0);
+		return time;
+	}
+
+	static int[] ints(String list){
+		String[] words = list.split(",");
+		int[] values = new int[words.length];
+		for(int i = 0; i < words.length; ++i)
+			values[i] = Integer.valueOf(words[i]);
+		return values;
+	}
+
+	/***
+	 * Channel discarding everything, so that writer benchmark doesn't measure the disk
+	 */
+	static class NullChannel implements WritableByteChannel {
+		public int write(ByteBuffer src){
+			int length = src.remaining();
+			src.position(src.limit());
+			return length;
+		}
+		public boolean isOpen(){return true;}
+		public void close(){}
+	}
+}
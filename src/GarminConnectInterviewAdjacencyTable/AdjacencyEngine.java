@@ -0,0 +1,60 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
+
+/***
+ *
+ * The original adjacency-table algorithm as a SimulationEngine.
+ * The circuit is formatted back into a string and parsed by MainSimulator.constructDAGandAdjacencyTable,
+ * then every row of truth table is evaluated by BreadthFirstOperation on a copy of the adjacency table.
+ * It costs O((NI+NG)^2) per row, so it is kept as a reference to check the other engines against, and never picked by EngineSelector.
+ */
+class AdjacencyEngine implements SimulationEngine {
+	public String name(){return "adjacency";}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Construct the DAG and the adjacency table once
+	 * Step2: - For each row in truth table:
+	 * 				- Perform BFS on a deep copy of the adjacency table, the node with table index n holds the output bit of node n
+	 * 				- Copy bits of schedule.outputPins into the truth table
+	 * @return truth table, or null if the legacy parser rejects the circuit
+	 */
+	@SuppressWarnings("unchecked")
+	public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+	//Step1: legacy graph and adjacency table
+		ArrayList<Object> DAGandTable = MainSimulator.constructDAGandAdjacencyTable(schedule.netlist.format());
+		if(DAGandTable == null) return null;
+		ArrayList<Node> graph = (ArrayList<Node>)DAGandTable.get(0);
+		Integer[][] adjacencyTable = (Integer[][])DAGandTable.get(1);
+		Node[] nodes = new Node[graph.size()];		//nodes[n]: node with table index n
+		for(Node n: graph)
+			nodes[n.tableIndex] = n;
+	//Step2: BFS per row
+		int numOfInput = schedule.numOfInput;
+		TruthTable table = new TruthTable(numOfInput, schedule.outputPins.length);
+		Boolean[] row = new Boolean[numOfInput];
+		long[] words = new long[schedule.outputPins.length];
+		for(int r = 0; r < table.numOfRow; ++r){
+			for(int i = 0; i < numOfInput; ++i)
+				row[i] = table.inputBit(r, i);
+			graph = BreadthFirstOperation.operation(row, graph, MainSimulator.deepCopyAdjacencyTable(adjacencyTable), numOfInput);
+			if(graph == null) return null;
+			for(int k = 0; k < words.length; ++k){
+				if(nodes[schedule.outputPins[k]].outBit)
+					words[k] |= 1L << (r & 63);
+			}
+			if((r & 63) == 63 || r == table.numOfRow - 1){
+				for(int k = 0; k < words.length; ++k){
+					table.setWord(k, r >>> 6, words[k]);
+					words[k] = 0;
+				}
+			}
+			for(Node n: graph)
+				n.clear();
+		}
+		return table;
+	}
+}
@@ -0,0 +1,170 @@
+package GarminConnectInterviewAdjacencyTable;
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/***
+ * Pipelined batch mode of MainSimulator. Three stages run concurrently:
+ * 		parser:   reads circuits one at a time by a CircuitSource, and puts them into a bounded queue
+ * 		workers:  N threads simulating circuits by MainSimulator.simulateCircuit
+ * 		writer:   writes truth tables in input order by a CircuitWriter as soon as they are ready (the caller thread)
+ * At most IN_FLIGHT_PER_WORKER * N circuits are parsed but not written yet, the parser blocks when the limit is reached,
+ * so memory stays flat no matter how many circuits the input file has.
+ * If the simulation of a circuit throws (eg: OutOfMemoryError), the run is cancelled and the writer rethrows it,
+ * the circuits before it are written and journaled, so the run can be resumed from that circuit.
+ */
+public class BatchPipeline {
+	static final int IN_FLIGHT_PER_WORKER = 4;
+
+	/***
+	 * A parsed circuit and its truth table, tagged with the index of the circuit
+	 */
+	static class Job {
+		final int circuitIndx;
+		final ParsedCircuit circuit;	//null marks the end
+		final TruthTable table;			//null until simulated, or if the circuit can't be simulated
+		final CircuitMetrics metrics;	//null if metrics are off
+		final Throwable failure;		//thrown by the simulation of the circuit, or null
+		Job(int circuitIndx, ParsedCircuit circuit, TruthTable table, CircuitMetrics metrics){
+			this(circuitIndx, circuit, table, metrics, null);
+		}
+		Job(int circuitIndx, ParsedCircuit circuit, TruthTable table, CircuitMetrics metrics, Throwable failure){
+			this.circuitIndx = circuitIndx;
+			this.circuit = circuit;
+			this.table = table;
+			this.metrics = metrics;
+			this.failure = failure;
+		}
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Start parser thread and N worker threads
+	 * Step2: - Writer loop: take finished outputs, buffer those arriving out of order,
+	 * 			and write every output whose predecessors are all written, then release its in-flight permit
+	 * Step3: - When the parser reports the number of circuits and all of them are written, stop
+	 * 			If a worker reports a failure, stop and rethrow it, the tables not written yet are released
+	 * @param options: input and output file, # of simulation worker threads, and how circuits are simulated
+	 * @param pool:    fork-join pool to evaluate rows of a circuit, or null
+	 * @param cache:   truth tables of circuits simulated before, shared by all workers, or null
+	 * @param metrics: per-phase metrics of every circuit, or null if metrics are off
+	 * @param journal: checkpoint journal, committed as circuits are written, or null if checkpoints are off
+	 * @throws IOException if the output can't be written, or the failure of a circuit as IOException, RuntimeException or Error
+	 */
+	public static void run(final SimulatorOptions options, final ForkJoinPool pool, final ResultCache cache, SimulationMetrics metrics, final CheckpointJournal journal) throws IOException {
+		int numOfWorker = options.workers;
+		final int capacity = IN_FLIGHT_PER_WORKER * numOfWorker;
+		final boolean metricsOn = (metrics != null);
+		final Semaphore inFlight = new Semaphore(capacity);
+		final BlockingQueue<Job> parsed = new ArrayBlockingQueue<Job>(capacity);
+		final BlockingQueue<Job> simulated = new LinkedBlockingQueue<Job>();	//bounded by inFlight
+		final int poison = -1;
+	//Step1: parser and workers
+		Thread parser = new Thread(new Runnable(){
+			public void run(){
+				int circuitIndx = 0;
+				try{
+					CircuitSource tokenizer = MainSimulator.openSource(options, journal);
+					try{
+						while(true){
+							long begin = (metricsOn) ? System.nanoTime() : 0;
+							ParsedCircuit circuit = tokenizer.next();
+							if(circuit == null)
+								break;
+							CircuitMetrics record = (metricsOn) ? new CircuitMetrics(circuit.circuitIndx, System.nanoTime() - begin) : null;
+							inFlight.acquire();
+							parsed.put(new Job(circuitIndx++, circuit, null, record));
+						}
+					}finally{
+						tokenizer.close();
+					}
+				}catch(IOException e){
+					System.out.println("File read error!");
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}finally{
+					try{
+						simulated.put(new Job(circuitIndx, null, null, null));		//tell writer the number of circuits
+						for(int i = 0; i < capacity; ++i)
+							parsed.put(new Job(poison, null, null, null));
+					}catch(InterruptedException e){Thread.currentThread().interrupt();}
+				}
+			}
+		}, "pipeline-parser");
+		parser.setDaemon(true);
+		parser.start();
+		for(int w = 0; w < numOfWorker; ++w){
+			Thread worker = new Thread(new Runnable(){
+				public void run(){
+					try{
+						Job job;
+						while((job = parsed.take()).circuitIndx != poison){
+							Job done;
+							try{
+								done = new Job(job.circuitIndx, job.circuit, MainSimulator.simulateCircuit(job.circuit, pool, cache, options, job.metrics), job.metrics);
+							}catch(Throwable e){		//eg: OutOfMemoryError, the writer must not wait for this circuit forever
+								done = new Job(job.circuitIndx, job.circuit, null, job.metrics, e);
+							}
+							simulated.put(done);
+						}
+					}catch(InterruptedException e){Thread.currentThread().interrupt();}
+				}
+			}, "pipeline-worker-" + w);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	//Step2: ordered writer
+		CircuitWriter writer = MainSimulator.openWriter(options, journal);
+		HashMap<Integer, Job> pending = new HashMap<Integer, Job>();		//circuits finished out of order
+		try{
+			int next = 0, numOfCircuit = Integer.MAX_VALUE;
+			while(next < numOfCircuit){
+				Job job = simulated.take();
+				if(job.circuit == null){
+					numOfCircuit = job.circuitIndx;
+					continue;
+				}
+				if(job.failure != null)
+					fail(job);
+				pending.put(job.circuitIndx, job);
+				Job ready;
+				while((ready = pending.remove(next)) != null){
+					MainSimulator.writeCircuit(writer, ready.circuit, ready.table, ready.metrics);
+					if(ready.metrics != null)
+						metrics.add(ready.metrics);
+					inFlight.release();
+					next++;
+					if(journal != null)
+						journal.written(ready.circuit.circuitIndx + 1, writer);
+				}
+				writer.flush();
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}finally{
+			for(Job job: pending.values())
+				if(job.table != null)
+					job.table.release();
+			writer.close();
+		}
+	}
+
+	/***
+	 * Rethrow the failure of a circuit, an IOException, RuntimeException or Error is thrown as is
+	 */
+	private static void fail(Job job) throws IOException {
+		System.out.println("Circuit " + (job.circuit.circuitIndx+1) + " failed: " + job.failure);
+		if(job.failure instanceof IOException)
+			throw (IOException)job.failure;
+		if(job.failure instanceof RuntimeException)
+			throw (RuntimeException)job.failure;
+		if(job.failure instanceof Error)
+			throw (Error)job.failure;
+		throw new IOException(job.failure);
+	}
+}
@@ -0,0 +1,301 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/***
+ * 
+ * Symbolic evaluation engine: each output pin becomes a reduced ordered binary decision diagram (ROBDD) instead of 2^NI evaluated rows.
+ * Input pin 0 (most significant bit of row index) is the top variable. Gates are applied in schedule order on the BDDs of their fan-in,
+ * so outputs with compact Boolean functions cost a few nodes no matter how many rows they have, and some questions need no rows at all:
+ * 		isConstant(k):  output k is the same on every row
+ * 		satCount(k):    # of rows where output k is 1
+ * Memory is bounded: nodes live in int arrays with an open-addressing unique table, up to maxNodes nodes,
+ * and apply results are memoized in a fixed-size, direct-mapped computed cache which simply overwrites on collision.
+ * @method
+ *         build(schedule):   build BDDs of all output pins, return false if they need more than maxNodes nodes
+ *         toTruthTable():    truth table of all output pins, by traversing the BDDs
+ *         simulate(schedule): build and traverse, or null if the node bound is hit (simulate by BitParallelSimulator instead)
+ */
+public class BddEngine {
+	static final int FALSE = 0, TRUE = 1;
+	static final int AND = 0, OR = 1, NOT = 2;
+	static final int DEFAULT_MAX_NODES = 1 << 20;
+	static final int CACHE_SIZE = 1 << 16;
+
+	private final int maxNodes;
+	private int numOfInput;
+	private int[] var, low, high;			//node n tests input var[n], low[n] if it's 0, high[n] if it's 1
+	private int numOfNode;
+	private int[] unique;					//open addressing, node index + 1, 0 is empty
+	private final int[] cacheOp = new int[CACHE_SIZE], cacheF = new int[CACHE_SIZE], cacheG = new int[CACHE_SIZE], cacheResult = new int[CACHE_SIZE];
+	private int[] roots;					//BDD of each output pin
+
+	/***
+	 * Thrown inside apply when the node bound is hit
+	 */
+	static class NodeLimitException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		NodeLimitException(){super(null, null, false, false);}
+	}
+
+	public BddEngine(){
+		this(DEFAULT_MAX_NODES);
+	}
+
+	public BddEngine(int maxNodes){
+		this.maxNodes = maxNodes;
+	}
+
+	/***
+	 * Build BDDs of all output pins and traverse them into a truth table
+	 * @param  schedule: null is passed through
+	 * @return truth table, or null if the schedule is null or needs more than DEFAULT_MAX_NODES nodes
+	 */
+	public static TruthTable simulate(LevelizedSchedule schedule){
+		if(schedule == null)
+			return null;
+		BddEngine engine = new BddEngine();
+		return engine.build(schedule) ? engine.toTruthTable() : null;
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - BDD of input pin i is the single node (i, FALSE, TRUE)
+	 * Step2: - For each gate in schedule order: AND/OR fold apply over the BDDs of its fan-in, NOT negates the BDD of its last fan-in
+	 * Step3: - Roots of output pins are the BDDs of their nodes
+	 * @param  schedule
+	 * @return false if more than maxNodes nodes are needed
+	 */
+	public boolean build(LevelizedSchedule schedule){
+		numOfInput = schedule.numOfInput;
+		int capacity = 1024;
+		var = new int[capacity];
+		low = new int[capacity];
+		high = new int[capacity];
+		unique = new int[2 * capacity];
+		Arrays.fill(cacheOp, -1);
+		numOfNode = 2;						//terminals
+		var[FALSE] = var[TRUE] = numOfInput;
+		int[] bdd = new int[schedule.numOfNode];
+		try{
+		//Step1: input pins
+			for(int i = 0; i < numOfInput; ++i)
+				bdd[i] = node(i, FALSE, TRUE);
+		//Step2: gates
+			for(int n: schedule.order){
+				int first = schedule.fanInOffset[n], last = schedule.fanInOffset[n + 1];
+				switch(schedule.types[n]){
+					case 3://NOT gate, the last wire overrides the former ones
+						bdd[n] = apply(NOT, bdd[schedule.fanInIndex[last - 1]], FALSE);
+						break;
+					case 2://OR gate
+						bdd[n] = FALSE;
+						for(int e = first; e < last; ++e)
+							bdd[n] = apply(OR, bdd[n], bdd[schedule.fanInIndex[e]]);
+						break;
+					default://AND gate, an untyped gate also behaves as AND
+						bdd[n] = TRUE;
+						for(int e = first; e < last; ++e)
+							bdd[n] = apply(AND, bdd[n], bdd[schedule.fanInIndex[e]]);
+						break;
+				}
+			}
+		}catch(NodeLimitException e){
+			return false;
+		}
+	//Step3: output pins
+		roots = new int[schedule.outputPins.length];
+		for(int k = 0; k < roots.length; ++k)
+			roots[k] = bdd[schedule.outputPins[k]];
+		return true;
+	}
+
+	public int numOfOutput(){return roots.length;}
+
+	/***
+	 * @return # of BDD nodes built, terminals included
+	 */
+	public int numOfNode(){return numOfNode;}
+
+	/***
+	 * @return true if output k is the same on every row
+	 */
+	public boolean isConstant(int k){
+		return roots[k] == FALSE || roots[k] == TRUE;
+	}
+
+	/***
+	 * @return # of rows where output k is 1, counted on the BDD without enumerating rows
+	 */
+	public long satCount(int k){
+		long[] memo = new long[numOfNode];
+		Arrays.fill(memo, -1);
+		return satCount(roots[k], memo) << var[roots[k]];
+	}
+
+	/***
+	 * # of assignments of variables var[f] ~ NI-1 making f true
+	 */
+	private long satCount(int f, long[] memo){
+		if(f == FALSE) return 0;
+		if(f == TRUE) return 1;
+		if(memo[f] >= 0) return memo[f];
+		long count = (satCount(low[f], memo) << (var[low[f]] - var[f] - 1))
+				+ (satCount(high[f], memo) << (var[high[f]] - var[f] - 1));
+		memo[f] = count;
+		return count;
+	}
+
+	/***
+	 * Traverse the BDD of each output pin: a path fixing inputs 0 ~ L-1 covers 2^(NI-L) consecutive rows,
+	 * so a terminal reached at level L fills the whole range, word by word when it spans 64 rows or more.
+	 * @return truth table of all output pins
+	 */
+	public TruthTable toTruthTable(){
+		TruthTable table = new TruthTable(numOfInput, roots.length);
+		long[] column = new long[table.numOfWord];
+		for(int k = 0; k < roots.length; ++k){
+			Arrays.fill(column, 0L);
+			fill(roots[k], 0, 0, column);
+			for(int w = 0; w < table.numOfWord; ++w)
+				table.setWord(k, w, column[w]);
+		}
+		return table;
+	}
+
+	private void fill(int f, int level, int base, long[] column){
+		if(f == FALSE)
+			return;
+		int size = 1 << (numOfInput - level);		//rows of this sub-cube
+		if(f == TRUE){
+			if(size >= 64)
+				Arrays.fill(column, base >>> 6, (base + size) >>> 6, -1L);
+			else
+				column[base >>> 6] |= ((1L << size) - 1) << (base & 63);
+			return;
+		}
+		int half = size >>> 1;
+		if(var[f] > level){			//input "level" isn't tested, both halves are the same
+			fill(f, level + 1, base, column);
+			fill(f, level + 1, base + half, column);
+		}else{
+			fill(low[f], level + 1, base, column);
+			fill(high[f], level + 1, base + half, column);
+		}
+	}
+
+	/***
+	 * AND, OR of f and g, or NOT f, with terminal cases and the computed cache
+	 */
+	private int apply(int op, int f, int g){
+		if(op == NOT){
+			if(f <= TRUE) return f ^ 1;
+		}else{
+			int absorbing = (op == AND) ? FALSE : TRUE;
+			if(f == absorbing || g == absorbing) return absorbing;
+			if(f == (absorbing ^ 1) || f == g) return g;
+			if(g == (absorbing ^ 1)) return f;
+			if(f > g){int t = f; f = g; g = t;}		//commutative
+		}
+		int slot = ((op * 0x9E3779B1 + f) * 0x85EBCA6B + g) * 0xC2B2AE35 >>> 16 & (CACHE_SIZE - 1);
+		if(cacheOp[slot] == op && cacheF[slot] == f && cacheG[slot] == g)
+			return cacheResult[slot];
+		int result;
+		if(op == NOT)
+			result = node(var[f], apply(NOT, low[f], FALSE), apply(NOT, high[f], FALSE));
+		else{
+			int v = Math.min(var[f], var[g]);
+			int f0 = (var[f] == v) ? low[f] : f, f1 = (var[f] == v) ? high[f] : f;
+			int g0 = (var[g] == v) ? low[g] : g, g1 = (var[g] == v) ? high[g] : g;
+			result = node(v, apply(op, f0, g0), apply(op, f1, g1));
+		}
+		cacheOp[slot] = op;
+		cacheF[slot] = f;
+		cacheG[slot] = g;
+		cacheResult[slot] = result;
+		return result;
+	}
+
+	/***
+	 * Unique node (v, lo, hi), a node whose branches are the same is reduced to the branch
+	 */
+	private int node(int v, int lo, int hi){
+		if(lo == hi) return lo;
+		int mask = unique.length - 1;
+		int slot = hash(v, lo, hi) & mask;
+		while(unique[slot] != 0){
+			int n = unique[slot] - 1;
+			if(var[n] == v && low[n] == lo && high[n] == hi)
+				return n;
+			slot = (slot + 1) & mask;
+		}
+		if(numOfNode == maxNodes)
+			throw new NodeLimitException();
+		if(numOfNode == var.length){
+			int capacity = Math.min(maxNodes, var.length * 2);
+			var = Arrays.copyOf(var, capacity);
+			low = Arrays.copyOf(low, capacity);
+			high = Arrays.copyOf(high, capacity);
+		}
+		int n = numOfNode++;
+		var[n] = v;
+		low[n] = lo;
+		high[n] = hi;
+		unique[slot] = n + 1;
+		if(2 * numOfNode > unique.length)		//keep load factor under 1/2
+			rehash();
+		return n;
+	}
+
+	private void rehash(){
+		unique = new int[unique.length * 2];
+		int mask = unique.length - 1;
+		for(int n = 2; n < numOfNode; ++n){
+			int slot = hash(var[n], low[n], high[n]) & mask;
+			while(unique[slot] != 0)
+				slot = (slot + 1) & mask;
+			unique[slot] = n + 1;
+		}
+	}
+
+	private static int hash(int v, int lo, int hi){
+		int h = v * 0x9E3779B1 + lo;
+		h = h * 0x85EBCA6B + hi;
+		return h ^ (h >>> 15);
+	}
+
+	/***
+	 * Answer queries without enumerating rows: for each output pin of each circuit, print whether it's constant and its # of satisfying rows
+	 * eg:  java GarminConnectInterviewAdjacencyTable.BddEngine ../testcase
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1){
+			System.out.println("Usage: java BddEngine inputFile");
+			return;
+		}
+		NetlistTokenizer tokenizer = new NetlistTokenizer(args[0]);
+		try{
+			ParsedCircuit circuit;
+			while((circuit = tokenizer.next()) != null){
+				LevelizedSchedule schedule = LevelizedSchedule.compile(circuit.netlist);
+				BddEngine engine = new BddEngine();
+				if(schedule == null){
+					System.out.println("Circuit " + (circuit.circuitIndx+1) + ": can't be simulated");
+					continue;
+				}
+				if(!engine.build(schedule)){
+					System.out.println("Circuit " + (circuit.circuitIndx+1) + ": more than " + DEFAULT_MAX_NODES + " BDD nodes");
+					continue;
+				}
+				System.out.println("Circuit " + (circuit.circuitIndx+1) + ": " + engine.numOfNode() + " BDD nodes");
+				for(int k = 0; k < engine.numOfOutput(); ++k){
+					long count = engine.satCount(k);
+					System.out.println("	output " + (k+1) + ": " + (engine.isConstant(k) ? "constant " + (count > 0 ? 1 : 0) + ", " : "")
+							+ count + " of " + (1 << schedule.numOfInput) + " rows are 1");
+				}
+			}
+		}finally{
+			tokenizer.close();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/***
+ * Convert a file written by BinaryTruthTableWriter back into the text output format, byte-identical to MainSimulator without --binary.
+ * The binary file is read through a read-only window of WINDOW_SIZE bytes moving forward over it, so it may be larger than the heap,
+ * and a file of many small circuits doesn't need one mapping per circuit.
+ * eg:  java GarminConnectInterviewAdjacencyTable.BinaryOutputConverter ../output.bin ../output
+ */
+public class BinaryOutputConverter {
+	static final long WINDOW_SIZE = 64L << 20;
+
+	public static void main(String[] args){
+		if(args.length != 2){
+			System.out.println("Usage: java BinaryOutputConverter binaryFile outputFile");
+			return;
+		}
+		try{
+			convert(args[0], args[1]);
+		}catch(IOException e){
+			System.out.println("File IOException: " + e.getMessage());
+		}
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Check file header
+	 * Step2: - For each circuit, read its header and bitmaps from the window, rebuild the TruthTable from the bitmaps and write it by TruthTableWriter
+	 * @throws IOException if the file can't be read or isn't in binary output format
+	 */
+	public static void convert(String binaryFile, String outputFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(binaryFile, "r");
+		Window window = null;
+		try{
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			window = new Window(channel, size);
+		//Step1: file header
+			if(size < BinaryTruthTableWriter.FILE_HEADER_SIZE)
+				throw new IOException("Not a binary output file");
+			int index = window.cover(0, BinaryTruthTableWriter.FILE_HEADER_SIZE);
+			byte[] magic = new byte[4];
+			for(int b = 0; b < magic.length; ++b)
+				magic[b] = window.buffer.get(index + b);
+			if(!Arrays.equals(magic, BinaryTruthTableWriter.MAGIC) || window.buffer.getInt(index + 4) != BinaryTruthTableWriter.VERSION)
+				throw new IOException("Not a binary output file");
+		//Step2: circuits
+			TruthTableWriter writer = new TruthTableWriter(outputFile);
+			try{
+				long position = BinaryTruthTableWriter.FILE_HEADER_SIZE;
+				while(position < size){
+					if(size - position < BinaryTruthTableWriter.CIRCUIT_HEADER_SIZE)
+						throw new IOException("Truncated circuit at byte " + position);
+					index = window.cover(position, BinaryTruthTableWriter.CIRCUIT_HEADER_SIZE);
+					MappedByteBuffer buffer = window.buffer;
+					int numOfInput = buffer.getInt(index), numOfOutput = buffer.getInt(index + 4), circuitIndx = buffer.getInt(index + 8), status = buffer.getInt(index + 12);
+					position += BinaryTruthTableWriter.CIRCUIT_HEADER_SIZE;
+					if(status != ParsedCircuit.OK){
+						writer.writeText(MainSimulator.errorText(circuitIndx, status));
+						continue;
+					}
+					if(numOfInput < 1 || numOfInput > 16 || numOfOutput < 0 || numOfOutput > 1000)
+						throw new IOException("Wrong circuit header at byte " + (position - BinaryTruthTableWriter.CIRCUIT_HEADER_SIZE));
+					int bitmapSize = BinaryTruthTableWriter.bitmapSize(numOfInput);
+					if(size - position < (long)bitmapSize * numOfOutput)
+						throw new IOException("Truncated circuit at byte " + position);
+					index = window.cover(position, (long)bitmapSize * numOfOutput);
+					buffer = window.buffer;
+					position += (long)bitmapSize * numOfOutput;
+					TruthTable table = new TruthTable(numOfInput, numOfOutput);
+					for(int k = 0; k < numOfOutput; ++k){
+						for(int w = 0; w < table.numOfWord; ++w){
+							long word = 0;
+							if(bitmapSize >= 8){
+								word = buffer.getLong(index);
+								index += 8;
+							}else for(int b = 0; b < bitmapSize; ++b)
+								word |= (buffer.get(index++) & 0xFFL) << (8 * b);
+							table.setWord(k, w, word);
+						}
+					}
+					writer.writeTruthTable(circuitIndx, table);
+					table.release();
+				}
+			}finally{
+				writer.close();
+			}
+		}finally{
+			if(window != null)
+				window.close();
+			file.close();
+		}
+	}
+
+	/***
+	 * Read-only mapped window moving forward over the file, records are read from it by absolute index.
+	 * The former window is unmapped when it moves, and the last one on close(), so only one mapping of the file is alive at a time.
+	 */
+	static class Window {
+		final FileChannel channel;
+		final long size;
+		MappedByteBuffer buffer;
+		long begin = 0, end = 0;
+
+		Window(FileChannel channel, long size){
+			this.channel = channel;
+			this.size = size;
+		}
+
+		/***
+		 * Map bytes [position, position + length) unless the window already holds them, a circuit's bitmaps are at most 8 MB
+		 * @return index of position in buffer
+		 */
+		int cover(long position, long length) throws IOException {
+			if(position < begin || position + length > end){
+				close();
+				begin = position;
+				end = Math.min(size, position + Math.max(WINDOW_SIZE, length));
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, begin, end - begin);
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return (int)(position - begin);
+		}
+
+		void close(){
+			if(buffer != null)
+				DirectBufferPool.free(buffer);
+			buffer = null;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/***
+ * 
+ * Writer of the bit-packed binary output format, through a memory-mapped file.
+ * The file is mapped REGION_SIZE bytes at a time, each circuit is copied straight into the mapping, and the file is truncated to its real size on close.
+ * A region is synced and unmapped as soon as the next one is mapped, so only one mapping of the file is alive at a time.
+ * Format, all integers little-endian:
+ * 		file header:    MAGIC "GTTB", int VERSION
+ * 		circuit header: int NI, int # of outputs, int circuit index (0-based), int status (ParsedCircuit.OK, FORMAT_ERROR or LINKAGE_ERROR)
+ * 		outputs:        for each output pin, a bitmap of 2^NI bits in ceil(2^NI / 8) bytes, bit (r % 8) of byte (r / 8) is row r
+ * A circuit with an error has NI = 0 and no outputs. Compared with text, NI=16 takes 8 KB per output instead of 4 MB for the whole circuit.
+ * @see BinaryOutputConverter, which turns the file back into the text format
+ */
+class BinaryTruthTableWriter implements CircuitWriter {
+	static final byte[] MAGIC = {'G', 'T', 'T', 'B'};
+	static final int VERSION = 1;
+	static final int FILE_HEADER_SIZE = 8;
+	static final int CIRCUIT_HEADER_SIZE = 16;
+	static final int REGION_SIZE = 64 << 20;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private MappedByteBuffer region;
+	private long regionBegin = 0;		//file position of region[0]
+
+	public BinaryTruthTableWriter(String fileName) throws IOException {
+		this(fileName, 0);
+	}
+
+	/***
+	 * Append to an output file whose first offset bytes are valid, eg: on --resume, the rest of the file is overwritten and cut off on close
+	 * @param fileName
+	 * @param offset: size of the valid output (file header included), 0 for a new file
+	 */
+	public BinaryTruthTableWriter(String fileName, long offset) throws IOException {
+		file = new RandomAccessFile(fileName, "rw");
+		channel = file.getChannel();
+		if(offset > 0){
+			map(offset, REGION_SIZE);
+			return;
+		}
+		file.setLength(0);
+		map(0, REGION_SIZE);
+		region.put(MAGIC);
+		region.putInt(VERSION);
+	}
+
+	/***
+	 * Bytes of one output bitmap of a circuit with numOfInput input pins
+	 */
+	static int bitmapSize(int numOfInput){
+		return ((1 << numOfInput) + 7) >>> 3;
+	}
+
+	@Override
+	public void writeCircuit(ParsedCircuit circuit, TruthTable table) throws IOException {
+		if(table == null){
+			MainSimulator.errorMessage(circuit);	//console message only
+			reserve(CIRCUIT_HEADER_SIZE);
+			region.putInt(0).putInt(0).putInt(circuit.circuitIndx).putInt(MainSimulator.errorStatus(circuit));
+			return;
+		}
+		int bitmapSize = bitmapSize(table.numOfInput);
+		reserve(CIRCUIT_HEADER_SIZE + (long)bitmapSize * table.numOfOutput);
+		region.putInt(table.numOfInput).putInt(table.numOfOutput).putInt(circuit.circuitIndx).putInt(ParsedCircuit.OK);
+		int fullWords = bitmapSize >>> 3, restBytes = bitmapSize & 7;
+		for(int k = 0; k < table.numOfOutput; ++k){
+			for(int w = 0; w < fullWords; ++w)
+				region.putLong(table.getWord(k, w));
+			if(restBytes > 0){		//NI < 6, the bitmap is shorter than one word
+				long word = table.getWord(k, fullWords);
+				for(int b = 0; b < restBytes; ++b)
+					region.put((byte)(word >>> (8 * b)));
+			}
+		}
+	}
+
+	/***
+	 * Make sure the mapped region has size bytes left, otherwise unmap it and map a new region at the current position
+	 */
+	private void reserve(long size) throws IOException {
+		if(region.remaining() >= size)
+			return;
+		long position = regionBegin + region.position();
+		region.force();
+		DirectBufferPool.free(region);
+		region = null;
+		map(position, Math.max(REGION_SIZE, size));
+	}
+
+	private void map(long begin, long size) throws IOException {
+		regionBegin = begin;
+		region = channel.map(FileChannel.MapMode.READ_WRITE, begin, size);
+		region.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public long size(){return regionBegin + region.position();}
+
+	/***
+	 * Nothing to do, bytes put into the mapping are already in the page cache and visible to readers of the file.
+	 * Syncing the mapping here would cost an msync of the whole region per batch loop, only force(), close() and moving to the next region sync it.
+	 */
+	@Override
+	public void flush(){}
+
+	/***
+	 * Sync the current region, and the file, which covers the regions mapped before it
+	 */
+	@Override
+	public void force() throws IOException {
+		region.force();
+		channel.force(false);
+	}
+
+	/***
+	 * Unmap the last region, then drop its unused tail and close the file, a file can't be truncated under a live mapping on Windows
+	 */
+	@Override
+	public void close() throws IOException {
+		try{
+			if(region == null)		//mapping the next region failed, regionBegin is where it would have started
+				channel.truncate(regionBegin);
+			else{
+				long size = regionBegin + region.position();
+				region.force();
+				DirectBufferPool.free(region);
+				region = null;
+				channel.truncate(size);
+			}
+		}finally{
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/***
+ * Bit-parallel evaluation of a LevelizedSchedule.
+ * Each node holds a long word instead of a Boolean, and every bit of the word is a different row of the truth table,
+ * so one pass over the schedule evaluates 64 consecutive rows, and AND/OR/NOT become single &, |, ~ operations.
+ * eg: a circuit with 16 input pins needs 1024 passes instead of 65536.
+ */
+public class BitParallelSimulator {
+	/***
+	 * Counting patterns of the low 6 bits of row index, PATTERNS[s] has bit k set iff bit s of k is set.
+	 */
+	static final long[] PATTERNS = {
+		0xAAAAAAAAAAAAAAAAL,
+		0xCCCCCCCCCCCCCCCCL,
+		0xF0F0F0F0F0F0F0F0L,
+		0xFF00FF00FF00FF00L,
+		0xFFFF0000FFFF0000L,
+		0xFFFFFFFF00000000L
+	};
+
+	/***
+	 * Return the 64 values of an input pin in rows [64 * w, 64 * w + 63]
+	 * @param numOfInput: # of input pins
+	 * @param input:      index of input pin, 0 is the most significant bit of row index
+	 * @param w:          index of word
+	 * @return word of input pattern
+	 */
+	public static long inputWord(int numOfInput, int input, int w){
+		int shift = numOfInput - 1 - input;
+		if(shift < 6)
+			return PATTERNS[shift];
+		return ((w >>> (shift - 6)) & 1) == 0 ? 0L : -1L;
+	}
+
+	/***
+	 * ALGORITHM - For each word(64 rows) of truth table:
+	 * 				- Initialize words of input pins with counting patterns
+	 * 				- Evaluate gates in schedule order with word operations
+	 * 				- Copy words of output pins into truth table
+	 * @param  schedule
+	 * @return truth table of all output pins
+	 */
+	public static TruthTable simulate(LevelizedSchedule schedule){
+		return simulate(schedule, null, null);
+	}
+
+	public static TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool){
+		return simulate(schedule, null, pool);
+	}
+
+	/***
+	 * Same as simulate(schedule), but gates are evaluated by a compiled evaluator instead of the interpreter
+	 * @param  schedule
+	 * @param  evaluator: circuit compiled by CircuitCompiler, or null to interpret the schedule
+	 * @return truth table of all output pins
+	 */
+	static TruthTable simulateSequentially(LevelizedSchedule schedule, CompiledEvaluator evaluator){
+		TruthTable table = new TruthTable(schedule.numOfInput, schedule.outputPins.length);
+		long[] values = new long[schedule.numOfNode];
+		for(int w = 0; w < table.numOfWord; ++w){
+			evaluateWord(schedule, evaluator, w, values);
+			for(int k = 0; k < schedule.outputPins.length; ++k)
+				table.setWord(k, w, values[schedule.outputPins[k]]);
+		}
+		return table;
+	}
+
+	/***
+	 * ALGORITHM - Same as simulate(schedule), but words of truth table are split into ranges evaluated on a fork-join pool.
+	 * The schedule and the evaluator are shared read-only, each task has its own scratch values, and each word is stored
+	 * at its own index of the truth table, so the rows come out in their original order no matter which thread evaluated them.
+	 * @param  schedule
+	 * @param  evaluator: circuit compiled by CircuitCompiler, or null to interpret the schedule
+	 * @param  pool:      fork-join pool, or null to evaluate sequentially
+	 * @return truth table of all output pins
+	 */
+	public static TruthTable simulate(LevelizedSchedule schedule, CompiledEvaluator evaluator, ForkJoinPool pool){
+		if(pool == null || schedule == null)
+			return simulateSequentially(schedule, evaluator);
+		TruthTable table = new TruthTable(schedule.numOfInput, schedule.outputPins.length);
+		pool.invoke(new WordRange(schedule, evaluator, table, 0, table.numOfWord));
+		return table;
+	}
+
+	/***
+	 * Fork-join task evaluating words [begin, end) of a truth table
+	 */
+	static class WordRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int THRESHOLD = 16;	//# of words evaluated by a task without splitting
+		final LevelizedSchedule schedule;
+		final CompiledEvaluator evaluator;
+		final TruthTable table;
+		final int begin, end;
+
+		WordRange(LevelizedSchedule schedule, CompiledEvaluator evaluator, TruthTable table, int begin, int end){
+			this.schedule = schedule;
+			this.evaluator = evaluator;
+			this.table = table;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute(){
+			if(end - begin > THRESHOLD){
+				int mid = (begin + end) >>> 1;
+				invokeAll(new WordRange(schedule, evaluator, table, begin, mid), new WordRange(schedule, evaluator, table, mid, end));
+				return;
+			}
+			long[] values = new long[schedule.numOfNode];	//scratch of this task
+			for(int w = begin; w < end; ++w){
+				evaluateWord(schedule, evaluator, w, values);
+				for(int k = 0; k < schedule.outputPins.length; ++k)
+					table.setWord(k, w, values[schedule.outputPins[k]]);
+			}
+		}
+	}
+
+	/***
+	 * Evaluate 64 rows of truth table against the schedule.
+	 * @param schedule
+	 * @param evaluator: circuit compiled by CircuitCompiler, or null to interpret the schedule
+	 * @param w:         index of word, rows [64 * w, 64 * w + 63] are evaluated
+	 * @param values:    scratch array of size numOfNode, values[n] holds 64 output bits of node n after evaluation
+	 */
+	public static void evaluateWord(LevelizedSchedule schedule, CompiledEvaluator evaluator, int w, long[] values){
+		for(int i = 0; i < schedule.numOfInput; ++i)
+			values[i] = inputWord(schedule.numOfInput, i, w);
+		if(evaluator != null){
+			evaluator.evaluate(values);
+			return;
+		}
+		for(int n: schedule.order){
+			int first = schedule.fanInOffset[n], last = schedule.fanInOffset[n + 1];
+			long word;
+			switch(schedule.types[n]){
+				case 2://OR gate
+					word = 0L;
+					for(int e = first; e < last; ++e)
+						word |= values[schedule.fanInIndex[e]];
+					break;
+				case 3://NOT gate, the last wire overrides the former ones
+					word = ~values[schedule.fanInIndex[last - 1]];
+					break;
+				default://AND gate, an untyped gate also behaves as AND
+					word = -1L;
+					for(int e = first; e < last; ++e)
+						word &= values[schedule.fanInIndex[e]];
+					break;
+			}
+			values[n] = word;
+		}
+	}
+}
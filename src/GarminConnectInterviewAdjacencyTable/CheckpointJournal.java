@@ -0,0 +1,128 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/***
+ *
+ * Sidecar journal of the output file (outputFile + ".journal"), so a run killed partway (OOM, kill, power loss) can be resumed by --resume.
+ * Circuits are appended to the output file as they are simulated anyway, so a checkpoint only has to record how far the output is valid:
+ * 		nextCircuit:   # of circuits fully written, the run resumes at this circuit index
+ * 		outputBytes:   size of the output file after these circuits, the tail beyond it is cut off on resume
+ * 		inputBytes, inputModified: the input file the run was reading, a journal of another input is not resumed
+ * 		binary:        output format of the run (--binary), a journal of the other format is not resumed
+ * ALGORITHM - Every --checkpoint SECONDS, after a circuit is written:
+ * 				- Force the output file to the storage device
+ * 				- Write the journal into a temp file, force it, and rename it over the journal (atomic), so the journal is always complete
+ * 			   When the run ends normally the journal is deleted.
+ * A circuit with NI <= 16 takes milliseconds, so checkpoints are at circuit boundaries only, no row offset is recorded inside a circuit.
+ * @method
+ *         open(options):                 journal of options.outputFile, with the resume point read back if --resume
+ *         written(nextCircuit, writer):  a circuit was written, commit a checkpoint if the interval has passed
+ *         finish():                      delete the journal after the last circuit
+ */
+class CheckpointJournal {
+	public final int resumeCircuit;		//# of circuits to skip on resume, 0 for a new run
+	public final long resumeBytes;		//size of valid output on resume, 0 for a new run
+	private final File journal;
+	private final File input;
+	private final boolean binary;
+	private final long intervalNanos;
+	private long lastCommit;
+
+	private CheckpointJournal(File journal, File input, boolean binary, long intervalNanos, int resumeCircuit, long resumeBytes){
+		this.journal = journal;
+		this.input = input;
+		this.binary = binary;
+		this.intervalNanos = intervalNanos;
+		this.resumeCircuit = resumeCircuit;
+		this.resumeBytes = resumeBytes;
+		this.lastCommit = System.nanoTime();
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Without --resume, or without a journal, start a new run
+	 * Step2: - Otherwise check that the journal belongs to the same input file and output format, and that the output file still holds outputBytes,
+	 * 			if not, print why and start a new run
+	 * @param  options: output and input file, --binary, --checkpoint SECONDS and --resume
+	 * @return journal, or null if checkpoints are off
+	 * @throws IOException if the journal can't be read
+	 */
+	public static CheckpointJournal open(SimulatorOptions options) throws IOException {
+		if(options.checkpointSeconds == 0)
+			return null;
+		File journal = new File(options.outputFile + ".journal");
+		File input = new File(options.inputFile);
+		long intervalNanos = options.checkpointSeconds * 1000000000L;
+	//Step1: new run
+		if(!options.resume || !journal.exists())
+			return new CheckpointJournal(journal, input, options.binary, intervalNanos, 0, 0);
+	//Step2: resume point
+		Properties checkpoint = new Properties();
+		FileInputStream in = new FileInputStream(journal);
+		try{
+			checkpoint.load(in);
+		}finally{
+			in.close();
+		}
+		try{
+			int nextCircuit = Integer.valueOf(checkpoint.getProperty("nextCircuit"));
+			long outputBytes = Long.valueOf(checkpoint.getProperty("outputBytes"));
+			if(Long.valueOf(checkpoint.getProperty("inputBytes")) != input.length()
+					|| Long.valueOf(checkpoint.getProperty("inputModified")) != input.lastModified())
+				System.out.println("Input file changed since the checkpoint, starting over");
+			else if(!String.valueOf(options.binary).equals(checkpoint.getProperty("binary")))
+				System.out.println("Output format changed since the checkpoint (--binary), starting over");
+			else if(new File(options.outputFile).length() < outputBytes)
+				System.out.println("Output file is shorter than the checkpoint, starting over");
+			else{
+				System.out.println("Resuming at circuit " + (nextCircuit + 1));
+				return new CheckpointJournal(journal, input, options.binary, intervalNanos, nextCircuit, outputBytes);
+			}
+		}catch(NumberFormatException e){
+			System.out.println("Broken checkpoint journal, starting over");
+		}
+		return new CheckpointJournal(journal, input, options.binary, intervalNanos, 0, 0);
+	}
+
+	/***
+	 * @param nextCircuit: # of circuits fully written, counted from the beginning of the input file
+	 * @param writer:      writer of the output file, its size() is the valid size of the output
+	 * @throws IOException if the output or the journal can't be forced to the storage device
+	 */
+	public void written(int nextCircuit, CircuitWriter writer) throws IOException {
+		long now = System.nanoTime();
+		if(now - lastCommit < intervalNanos)
+			return;
+		writer.force();
+		commit(nextCircuit, writer.size());
+		lastCommit = now;
+	}
+
+	private void commit(int nextCircuit, long outputBytes) throws IOException {
+		Properties checkpoint = new Properties();
+		checkpoint.setProperty("nextCircuit", String.valueOf(nextCircuit));
+		checkpoint.setProperty("outputBytes", String.valueOf(outputBytes));
+		checkpoint.setProperty("inputBytes", String.valueOf(input.length()));
+		checkpoint.setProperty("inputModified", String.valueOf(input.lastModified()));
+		checkpoint.setProperty("binary", String.valueOf(binary));
+		File temp = new File(journal.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try{
+			checkpoint.store(out, "MainSimulator checkpoint of " + input.getName());
+			out.getFD().sync();
+		}finally{
+			out.close();
+		}
+		Files.move(temp.toPath(), journal.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public void finish(){
+		journal.delete();
+	}
+}
@@ -0,0 +1,248 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/***
+ * Runtime compilation of a LevelizedSchedule into a class implementing CompiledEvaluator.
+ * Every gate becomes a few bytecodes of straight-line code, eg: gate 7 = AND(x1, gate 5) is compiled into
+ * 		values[7] = values[0] & values[5];
+ * so there is no switch on gate type, no loop over fan-in and no lookup of fanInIndex per gate per word,
+ * and HotSpot can compile the whole circuit as plain long operations.
+ * Gates are split into static methods of at most METHOD_SIZE bytes of code,
+ * because HotSpot doesn't JIT-compile methods larger than 8000 bytes.
+ * Each circuit gets its own class loader, so the class is unloaded together with its evaluator.
+ */
+public class CircuitCompiler {
+	static final int METHOD_SIZE = 7000;
+	static final String INTERFACE = "GarminConnectInterviewAdjacencyTable/CompiledEvaluator";
+	private static int numOfClass = 0;
+
+	/***
+	 * Class loader of one generated class
+	 */
+	static class Loader extends ClassLoader {
+		Loader(){
+			super(CompiledEvaluator.class.getClassLoader());
+		}
+		Class<?> define(String name, byte[] bytes){
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Emit code of each gate in schedule order, start a new method when the current one exceeds METHOD_SIZE
+	 * Step2: - Emit evaluate(long[]) calling these methods in order
+	 * Step3: - Write class file, define it and create an instance
+	 * @param  schedule
+	 * @return compiled evaluator, or null if schedule is null
+	 */
+	public static CompiledEvaluator compile(LevelizedSchedule schedule){
+		if(schedule == null) return null;
+		String name;
+		synchronized(CircuitCompiler.class){
+			name = "GarminConnectInterviewAdjacencyTable/GeneratedCircuit" + (numOfClass++);
+		}
+		ClassFile cf = new ClassFile(name);
+	//Step1: gates
+		ArrayList<byte[]> chunks = new ArrayList<byte[]>();
+		ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+		for(int n: schedule.order){
+			byte[] gate = gateCode(schedule, n);
+			if(chunk.size() > 0 && chunk.size() + gate.length > METHOD_SIZE){
+				chunks.add(chunk.toByteArray());
+				chunk.reset();
+			}
+			chunk.write(gate, 0, gate.length);
+		}
+		if(chunk.size() > 0)
+			chunks.add(chunk.toByteArray());
+		for(int k = 0; k < chunks.size(); ++k){
+			ByteArrayOutputStream code = new ByteArrayOutputStream();
+			byte[] body = chunks.get(k);
+			code.write(body, 0, body.length);
+			code.write(0xB1);		//return
+			cf.addMethod(0x000A, "c" + k, "([J)V", 6, 1, code.toByteArray());	//private static
+		}
+	//Step2: evaluate(long[])
+		ByteArrayOutputStream evaluate = new ByteArrayOutputStream();
+		for(int k = 0; k < chunks.size(); ++k){
+			int method = cf.methodref(name, "c" + k, "([J)V");
+			evaluate.write(0x2B);	//aload_1
+			evaluate.write(0xB8);	//invokestatic
+			evaluate.write(method >>> 8);
+			evaluate.write(method);
+		}
+		evaluate.write(0xB1);		//return
+		cf.addMethod(0x0001, "evaluate", "([J)V", 1, 2, evaluate.toByteArray());
+	//Step3: define class
+		try{
+			Class<?> c = new Loader().define(name.replace('/', '.'), cf.toByteArray());
+			return (CompiledEvaluator)c.getConstructor().newInstance();
+		}catch(IOException e){
+			throw new IllegalStateException(e);
+		}catch(ReflectiveOperationException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/***
+	 * Bytecode of values[n] = fanIn1 op fanIn2 op ... (or ~lastFanIn for NOT gate)
+	 */
+	static byte[] gateCode(LevelizedSchedule schedule, int n){
+		ByteArrayOutputStream code = new ByteArrayOutputStream();
+		int first = schedule.fanInOffset[n], last = schedule.fanInOffset[n + 1];
+		int type = schedule.types[n];
+		code.write(0x2A);				//aload_0
+		pushInt(code, n);
+		if(type == 3){					//NOT gate, the last wire overrides the former ones
+			loadValue(code, schedule.fanInIndex[last - 1]);
+			code.write(0x02);			//iconst_m1
+			code.write(0x85);			//i2l
+			code.write(0x83);			//lxor
+		}else{
+			loadValue(code, schedule.fanInIndex[first]);
+			for(int e = first + 1; e < last; ++e){
+				loadValue(code, schedule.fanInIndex[e]);
+				code.write(type == 2 ? 0x81 : 0x7F);	//lor : land, an untyped gate also behaves as AND
+			}
+		}
+		code.write(0x50);				//lastore
+		return code.toByteArray();
+	}
+
+	private static void loadValue(ByteArrayOutputStream code, int n){
+		code.write(0x2A);				//aload_0
+		pushInt(code, n);
+		code.write(0x2F);				//laload
+	}
+
+	private static void pushInt(ByteArrayOutputStream code, int value){
+		if(value <= 5){
+			code.write(0x03 + value);	//iconst_<value>
+		}else if(value <= 127){
+			code.write(0x10);			//bipush
+			code.write(value);
+		}else{
+			code.write(0x11);			//sipush
+			code.write(value >>> 8);
+			code.write(value);
+		}
+	}
+
+	/***
+	 * Minimal class file writer: one public final class extending Object and implementing CompiledEvaluator,
+	 * with a public no-arg constructor and methods without branches (so no StackMapTable is needed)
+	 */
+	static class ClassFile {
+		private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+		private final DataOutputStream poolOut = new DataOutputStream(pool);
+		private final HashMap<String, Integer> entries = new HashMap<String, Integer>();
+		private int poolSize = 1;
+		private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+		private final DataOutputStream methodsOut = new DataOutputStream(methods);
+		private int numOfMethod = 0;
+		private final int thisClass, superClass, interfaceClass;
+
+		ClassFile(String name){
+			thisClass = classref(name);
+			superClass = classref("java/lang/Object");
+			interfaceClass = classref(INTERFACE);
+			ByteArrayOutputStream init = new ByteArrayOutputStream();
+			int objectInit = methodref("java/lang/Object", "<init>", "()V");
+			init.write(0x2A);			//aload_0
+			init.write(0xB7);			//invokespecial
+			init.write(objectInit >>> 8);
+			init.write(objectInit);
+			init.write(0xB1);			//return
+			addMethod(0x0001, "<init>", "()V", 1, 1, init.toByteArray());
+		}
+
+		int utf8(String s){
+			Integer index = entries.get("U" + s);
+			if(index != null) return index;
+			try{
+				poolOut.writeByte(1);
+				poolOut.writeUTF(s);
+			}catch(IOException e){throw new IllegalStateException(e);}
+			entries.put("U" + s, poolSize);
+			return poolSize++;
+		}
+
+		int classref(String name){
+			Integer index = entries.get("C" + name);
+			if(index != null) return index;
+			int nameIndex = utf8(name);
+			try{
+				poolOut.writeByte(7);
+				poolOut.writeShort(nameIndex);
+			}catch(IOException e){throw new IllegalStateException(e);}
+			entries.put("C" + name, poolSize);
+			return poolSize++;
+		}
+
+		int methodref(String owner, String name, String descriptor){
+			String key = "M" + owner + "." + name + descriptor;
+			Integer index = entries.get(key);
+			if(index != null) return index;
+			int classIndex = classref(owner), nameIndex = utf8(name), descriptorIndex = utf8(descriptor);
+			try{
+				poolOut.writeByte(12);		//NameAndType
+				poolOut.writeShort(nameIndex);
+				poolOut.writeShort(descriptorIndex);
+				int nameAndType = poolSize++;
+				poolOut.writeByte(10);		//Methodref
+				poolOut.writeShort(classIndex);
+				poolOut.writeShort(nameAndType);
+			}catch(IOException e){throw new IllegalStateException(e);}
+			entries.put(key, poolSize);
+			return poolSize++;
+		}
+
+		void addMethod(int access, String name, String descriptor, int maxStack, int maxLocals, byte[] code){
+			int nameIndex = utf8(name), descriptorIndex = utf8(descriptor), codeIndex = utf8("Code");
+			try{
+				methodsOut.writeShort(access);
+				methodsOut.writeShort(nameIndex);
+				methodsOut.writeShort(descriptorIndex);
+				methodsOut.writeShort(1);				//attributes: Code
+				methodsOut.writeShort(codeIndex);
+				methodsOut.writeInt(12 + code.length);
+				methodsOut.writeShort(maxStack);
+				methodsOut.writeShort(maxLocals);
+				methodsOut.writeInt(code.length);
+				methodsOut.write(code);
+				methodsOut.writeShort(0);				//exception table
+				methodsOut.writeShort(0);				//attributes of Code
+			}catch(IOException e){throw new IllegalStateException(e);}
+			numOfMethod++;
+		}
+
+		byte[] toByteArray() throws IOException {
+			utf8("Code");
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);			//minor version
+			out.writeShort(52);			//major version, Java 8
+			out.writeShort(poolSize);
+			poolOut.flush();
+			pool.writeTo(out);
+			out.writeShort(0x0031);		//public final super
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1);
+			out.writeShort(interfaceClass);
+			out.writeShort(0);			//fields
+			out.writeShort(numOfMethod);
+			methodsOut.flush();
+			methods.writeTo(out);
+			out.writeShort(0);			//attributes
+			out.flush();
+			return bytes.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.Closeable;
+import java.io.IOException;
+
+/***
+ * Source of parsed circuits in input order
+ * @method
+ *         next():   return next circuit, or null at the end of input
+ * @see NetlistTokenizer (byte stream), MappedNetlistReader (memory-mapped file)
+ */
+interface CircuitSource extends Closeable {
+	ParsedCircuit next() throws IOException;
+}
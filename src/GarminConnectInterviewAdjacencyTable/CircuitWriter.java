@@ -0,0 +1,22 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.Closeable;
+import java.io.IOException;
+
+/***
+ * Writer of the output file, one circuit at a time in input order
+ * @method
+ *         writeCircuit(circuit, table):  write the truth table of a circuit, or its error if table is null
+ *         flush():                       make written circuits visible to readers of the output
+ *         force():                       flush, and force written circuits to the storage device, eg: before a checkpoint
+ *         size():                        # of bytes written so far, buffered bytes included
+ * @see TruthTableWriter (text format), BinaryTruthTableWriter (bit-packed format)
+ */
+interface CircuitWriter extends Closeable {
+	void writeCircuit(ParsedCircuit circuit, TruthTable table) throws IOException;
+
+	void flush() throws IOException;
+
+	void force() throws IOException;
+
+	long size();
+}
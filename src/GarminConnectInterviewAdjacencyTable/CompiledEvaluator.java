@@ -0,0 +1,14 @@
+package GarminConnectInterviewAdjacencyTable;
+
+/***
+ * A circuit compiled into straight-line code by CircuitCompiler.
+ * It is public because the generated class is defined by its own class loader.
+ */
+public interface CompiledEvaluator {
+	/***
+	 * Evaluate all gates of the circuit
+	 * @param values: values[0] ~ values[NI-1] are words of input pins, filled by the caller,
+	 * 				  values[n] is the word of gate node n after evaluation
+	 */
+	void evaluate(long[] values);
+}
@@ -0,0 +1,85 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ *
+ * Pool of off-heap (direct) buffers backing the words of TruthTables and the output buffers of TruthTableWriters,
+ * so results of a batch don't live on the heap and don't cost GC time.
+ * Buffers come in power-of-two size classes from MIN_SIZE up, a released buffer is kept for the next table of its class
+ * as long as the pool holds less than MAX_POOLED bytes, otherwise its native memory is freed right away instead of waiting for GC.
+ * @method
+ *         allocate(bytes):  zero-filled buffer of at least bytes bytes, limit = bytes, in native byte order
+ *         release(buffer):  give a buffer back, it must not be used anymore
+ */
+class DirectBufferPool {
+	static final int MIN_SIZE = 4096;
+	static final long MAX_POOLED = 64L << 20;
+	private static final SizeClass[] CLASSES = new SizeClass[32];	//CLASSES[c]: free buffers of 2^c bytes
+	private static final AtomicLong pooled = new AtomicLong();
+	static{
+		for(int c = 0; c < CLASSES.length; ++c)
+			CLASSES[c] = new SizeClass();
+	}
+
+	private static class SizeClass {
+		final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+	}
+
+	public static ByteBuffer allocate(long bytes){
+		int c = sizeClass(bytes);
+		ByteBuffer buffer = CLASSES[c].free.poll();
+		if(buffer == null)
+			buffer = ByteBuffer.allocateDirect(1 << c).order(ByteOrder.nativeOrder());
+		else{
+			pooled.addAndGet(-buffer.capacity());
+			buffer.clear();
+			for(int i = 0; i < bytes; i += 8)		//a recycled buffer holds the words of its last table
+				buffer.putLong(i, 0L);
+		}
+		buffer.limit((int)bytes);
+		return buffer;
+	}
+
+	public static void release(ByteBuffer buffer){
+		if(pooled.addAndGet(buffer.capacity()) <= MAX_POOLED){
+			CLASSES[Integer.numberOfTrailingZeros(buffer.capacity())].free.offer(buffer);
+			return;
+		}
+		pooled.addAndGet(-buffer.capacity());
+		free(buffer);
+	}
+
+	/***
+	 * @return c such that 2^c >= max(bytes, MIN_SIZE)
+	 */
+	static int sizeClass(long bytes){
+		return 64 - Long.numberOfLeadingZeros(Math.max(bytes, MIN_SIZE) - 1);
+	}
+
+	/***
+	 * Free the native memory of a direct buffer now, or unmap a MappedByteBuffer: Unsafe.invokeCleaner on Java 9+, the buffer's Cleaner on Java 8.
+	 * If neither is reachable, the memory is freed when the buffer is garbage collected.
+	 * The buffer must not be used anymore, accessing it afterwards may crash the JVM.
+	 */
+	static void free(ByteBuffer buffer){
+		try{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		}catch(Exception e){}		//Java 8
+		try{
+			Method cleaner = buffer.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			Object clean = cleaner.invoke(buffer);
+			clean.getClass().getMethod("clean").invoke(clean);
+		}catch(Exception e){}		//left to GC
+	}
+}
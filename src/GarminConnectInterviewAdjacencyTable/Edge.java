@@ -1,9 +1,9 @@
-package GarminConnectInterviewNodeEdge;
+package GarminConnectInterviewAdjacencyTable;
 
 class Edge{
-		public final Node from;
-		public final Node to;
-		public Edge(Node from, Node to) {
+		public final Vertex from;
+		public final Vertex to;
+		public Edge(Vertex from, Vertex to) {
 			this.from = from;
 			this.to = to;
 		}
@@ -0,0 +1,165 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.concurrent.ForkJoinPool;
+
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
+
+/***
+ *
+ * Registry of SimulationEngines, and the automatic choice of an engine per circuit (--engine auto).
+ * 		bitParallel:  BitParallelSimulator interpreting the schedule, 64 rows per pass
+ * 		wide:         WideSimulator, 1024 rows per pass in SIMD-friendly lane loops
+ * 		jit:          BitParallelSimulator running bytecode compiled by CircuitCompiler
+ * 		incremental:  IncrementalSimulator, event-driven in Gray-code row order
+ * 		bdd:          BddEngine, gives up when the BDDs outgrow their node bound
+ * 		adjacency:    original adjacency-table algorithm (AdjacencyEngine), reference only
+ * 		nodeEdge:     original node/edge algorithm (NodeEdgeEngine on TopologicalSort), reference only
+ * @method
+ *         engine(name):      engine of the given name, EngineSelector itself for "auto", or null if unknown
+ *         select(schedule):  engine picked for a circuit from NI, NG and edge density
+ *         fallback(...):     bitParallel, after an engine gave up on a circuit
+ */
+class EngineSelector implements SimulationEngine {
+	public static final String AUTO = "auto";
+	static final SimulationEngine BIT_PARALLEL = new BitParallelEngine(), BDD = new BddSimulationEngine();
+	static final SimulationEngine[] ENGINES = {
+		BIT_PARALLEL, new WideEngine(), new JitEngine(), new IncrementalEngine(), BDD, new AdjacencyEngine(), new NodeEdgeEngine()
+	};
+	/***
+	 * Above this # of word operations (edges * words per column), building BDDs takes less time than bit-parallel evaluation
+	 */
+	static final long BDD_THRESHOLD = 1L << 19;
+
+	static final EngineSelector SELECTOR = new EngineSelector();
+
+	private EngineSelector(){}
+
+	public String name(){return AUTO;}
+
+	/***
+	 * Simulate by the engine select() picks, and by bitParallel if it gives up, the name recorded in metrics is the one of the engine used
+	 */
+	public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+		SimulationEngine engine = select(schedule);
+		if(metrics != null)
+			metrics.engine = engine.name();
+		TruthTable table = engine.simulate(schedule, pool, metrics);
+		if(table == null)
+			table = fallback(schedule, pool, metrics);
+		return table;
+	}
+
+	/***
+	 * Simulate by bitParallel, which never gives up, after another engine did
+	 */
+	public static TruthTable fallback(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+		if(metrics != null){
+			metrics.engine = BIT_PARALLEL.name();
+			metrics.gateEvaluations = schedule.order.length * (1L << schedule.numOfInput);
+		}
+		return BIT_PARALLEL.simulate(schedule, pool, metrics);
+	}
+
+	/***
+	 * @param  name: name of an engine, or "auto"
+	 * @return engine, or null if there is no engine of that name
+	 */
+	public static SimulationEngine engine(String name){
+		if(name.equals(AUTO))
+			return SELECTOR;
+		for(SimulationEngine engine: ENGINES){
+			if(engine.name().equals(name))
+				return engine;
+		}
+		return null;
+	}
+
+	/***
+	 * @return names of all engines, eg: for usage messages
+	 */
+	public static String names(){
+		StringBuilder names = new StringBuilder(AUTO);
+		for(SimulationEngine engine: ENGINES)
+			names.append('|').append(engine.name());
+		return names.toString();
+	}
+
+	/***
+	 * ALGORITHM - Cost model of one circuit, measured on random circuits of CircuitGenerator (NI 10 ~ 16, NG 200 ~ 1000, fan-in 2 ~ 500)
+	 * Step1: - Word operations of bitParallel: each edge costs one &, | per word of 64 rows, so cost = edges * ceil(2^NI / 64),
+	 * 			which grows with NI, NG and edge density (edges / gates)
+	 * Step2: - cost above BDD_THRESHOLD: bdd, wide AND/OR gates of many input pins shrink to small BDDs, and the truth table is filled
+	 * 			by ranges of rows instead of row by row, eg: NI=16, NG=800, fan-in 32 ~ 64 takes 1/4 of the time of bitParallel
+	 * 			If the BDDs outgrow their node bound anyway, simulate() falls back to bitParallel.
+	 * Step3: - otherwise bitParallel
+	 * jit and incremental are never picked: generating and loading a class per circuit costs more than it saves within NG <= 1000,
+	 * and incremental evaluates one row at a time, both measured slower than bitParallel at every size, they are kept for --engine.
+	 * wide is up to 2.8 times faster than bitParallel once its lane loops are compiled (SimulatorBenchmark, --serve), but slower
+	 * until then, so a single run over a file is faster with bitParallel, it is kept for --engine wide.
+	 * @param  schedule
+	 * @return engine
+	 */
+	public static SimulationEngine select(LevelizedSchedule schedule){
+	//Step1: word operations of bitParallel
+		long numOfWord = ((1L << schedule.numOfInput) + 63) >>> 6;
+		long cost = schedule.fanInIndex.length * numOfWord;
+	//Step2: large or dense circuits
+		if(cost >= BDD_THRESHOLD)
+			return BDD;
+	//Step3: the others
+		return BIT_PARALLEL;
+	}
+
+	static class BitParallelEngine implements SimulationEngine {
+		public String name(){return "bitParallel";}
+
+		public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+			return BitParallelSimulator.simulate(schedule, null, pool);
+		}
+	}
+
+	static class WideEngine implements SimulationEngine {
+		public String name(){return "wide";}
+
+		public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+			return WideSimulator.simulate(schedule, pool);
+		}
+	}
+
+	/***
+	 * Bytecode generation and class loading are counted as compile time
+	 */
+	static class JitEngine implements SimulationEngine {
+		public String name(){return "jit";}
+
+		public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+			long begin = (metrics == null) ? 0 : System.nanoTime();
+			CompiledEvaluator evaluator = CircuitCompiler.compile(schedule);
+			if(metrics != null)
+				metrics.compileNanos += System.nanoTime() - begin;
+			return BitParallelSimulator.simulate(schedule, evaluator, pool);
+		}
+	}
+
+	static class IncrementalEngine implements SimulationEngine {
+		public String name(){return "incremental";}
+
+		public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+			IncrementalSimulator incremental = new IncrementalSimulator(schedule);
+			TruthTable table = incremental.simulate();
+			if(metrics != null)
+				metrics.gateEvaluations = incremental.evaluations;
+			return table;
+		}
+	}
+
+	static class BddSimulationEngine implements SimulationEngine {
+		public String name(){return "bdd";}
+
+		public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+			TruthTable table = BddEngine.simulate(schedule);		//null if the BDDs outgrow their node bound
+			if(metrics != null)
+				metrics.gateEvaluations = schedule.order.length;
+			return table;
+		}
+	}
+}
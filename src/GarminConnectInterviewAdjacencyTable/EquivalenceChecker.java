@@ -0,0 +1,109 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.IOException;
+
+/***
+ * Combinational equivalence check of two netlists with the same # of input pins and output pins,
+ * eg: to confirm a rewritten circuit still matches the original without writing and diffing two text truth tables.
+ * Output pin k of one circuit is compared with output pin k of the other, in the order of their truth tables.
+ * ALGORITHM - For each word (64 rows) of truth table:
+ * 				- Evaluate both schedules by BitParallelSimulator.evaluateWord
+ * 				- XOR the words of each pair of output pins, stop at the first word where any pair differs
+ * 			   The lowest differing row of that word is the counterexample, nothing beyond it is evaluated.
+ * eg:  java GarminConnectInterviewAdjacencyTable.EquivalenceChecker original.txt rewritten.txt
+ * 		java GarminConnectInterviewAdjacencyTable.MainSimulator equiv original.txt rewritten.txt
+ * Both files may hold several circuits, circuit k of one file is checked against circuit k of the other.
+ */
+public class EquivalenceChecker {
+	/***
+	 * Row where two circuits differ, and the first output pin differing in that row
+	 */
+	public static class Counterexample {
+		public final int row;
+		public final int output;
+		public final boolean bitOfFirst;		//value of the output pin in the first circuit, the second one has the opposite
+		Counterexample(int row, int output, boolean bitOfFirst){
+			this.row = row;
+			this.output = output;
+			this.bitOfFirst = bitOfFirst;
+		}
+	}
+
+	/***
+	 * @param  first, second: schedules with the same numOfInput and # of output pins
+	 * @return lowest row where some output pin differs, or null if the circuits are equivalent
+	 */
+	public static Counterexample check(LevelizedSchedule first, LevelizedSchedule second){
+		int numOfInput = first.numOfInput, numOfOutput = first.outputPins.length;
+		int numOfRow = 1 << numOfInput;
+		int numOfWord = (numOfRow + 63) >>> 6;
+		long mask = (numOfRow >= 64) ? -1L : (1L << numOfRow) - 1;		//with NI < 6 the word repeats the rows
+		long[] a = new long[first.numOfNode], b = new long[second.numOfNode];
+		for(int w = 0; w < numOfWord; ++w){
+			BitParallelSimulator.evaluateWord(first, null, w, a);
+			BitParallelSimulator.evaluateWord(second, null, w, b);
+			long differ = 0;
+			for(int k = 0; k < numOfOutput; ++k)
+				differ |= a[first.outputPins[k]] ^ b[second.outputPins[k]];
+			differ &= mask;
+			if(differ == 0)
+				continue;
+			int bit = Long.numberOfTrailingZeros(differ);
+			for(int k = 0; ; ++k){
+				long word = a[first.outputPins[k]];
+				if((((word ^ b[second.outputPins[k]]) >>> bit) & 1L) != 0)
+					return new Counterexample(64 * w + bit, k, ((word >>> bit) & 1L) != 0);
+			}
+		}
+		return null;
+	}
+
+	/***
+	 * Check circuit k of the first file against circuit k of the second file, and print the result of each pair
+	 * @param args: firstFile secondFile
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2){
+			System.out.println("Usage: java EquivalenceChecker firstFile secondFile");
+			return;
+		}
+		NetlistTokenizer firstFile = new NetlistTokenizer(args[0]);
+		NetlistTokenizer secondFile = new NetlistTokenizer(args[1]);
+		try{
+			ParsedCircuit first, second;
+			while(true){
+				first = firstFile.next();
+				second = secondFile.next();
+				if(first == null && second == null)
+					break;
+				if(first == null || second == null){
+					System.out.println("Circuit " + ((first == null ? second : first).circuitIndx+1) + ": only in " + (first == null ? args[1] : args[0]));
+					continue;
+				}
+				String title = "Circuit " + (first.circuitIndx+1) + ": ";
+				LevelizedSchedule a = LevelizedSchedule.compile(first.netlist), b = LevelizedSchedule.compile(second.netlist);
+				if(a == null || b == null){
+					System.out.println(title + "can't be simulated in " + (a == null ? args[0] : args[1]));
+					continue;
+				}
+				if(a.numOfInput != b.numOfInput || a.outputPins.length != b.outputPins.length){
+					System.out.println(title + "can't be compared, " + a.numOfInput + " vs " + b.numOfInput + " input pins, "
+							+ a.outputPins.length + " vs " + b.outputPins.length + " output pins");
+					continue;
+				}
+				Counterexample counterexample = check(a, b);
+				if(counterexample == null){
+					System.out.println(title + "equivalent");
+					continue;
+				}
+				StringBuilder vector = new StringBuilder();
+				for(int i = 0; i < a.numOfInput; ++i)
+					vector.append(((counterexample.row >>> (a.numOfInput - 1 - i)) & 1) != 0 ? '1' : '0').append(' ');
+				System.out.println(title + "not equivalent, input " + vector + "(row " + counterexample.row + ") gives output "
+						+ (counterexample.output+1) + " = " + (counterexample.bitOfFirst ? 1 : 0) + " vs " + (counterexample.bitOfFirst ? 0 : 1));
+			}
+		}finally{
+			firstFile.close();
+			secondFile.close();
+		}
+	}
+}
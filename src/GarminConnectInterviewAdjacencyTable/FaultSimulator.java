@@ -0,0 +1,280 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/***
+ * Parallel-pattern single-fault simulation of stuck-at faults, to tell which faults the rows of the truth table (as test vectors) detect.
+ * Every gate output gets two faults, stuck-at-0 and stuck-at-1, fault f sits on gate order[f / 2] and is stuck at f % 2.
+ * A fault is detected by a row if some output pin of the faulty circuit differs from the good circuit in that row.
+ * ALGORITHM - For each word (64 rows) of truth table:
+ * 				- Evaluate the good circuit by BitParallelSimulator.evaluateWord
+ * 				- For each fault not detected yet:
+ * 					- Skip it if the good value of its gate already equals the stuck value in all 64 rows (not excited)
+ * 					- Force the stuck value on its gate and propagate the difference level by level through its fan-out cone,
+ * 					  a gate is re-evaluated only if one of its fan-in nodes differs from the good circuit
+ * 					- If a difference reaches any output pin, the fault is detected by the lowest such row and dropped
+ * A fault is dropped as soon as it is detected, so after the first words only hard-to-detect and redundant faults are left.
+ * With a fork-join pool the faults are split into ranges, each evaluating the good circuit itself with its own scratch arrays.
+ * eg:  java GarminConnectInterviewAdjacencyTable.FaultSimulator --threads 4 ../testcase
+ * @param  schedule
+ *         numOfFault:   2 * # of gates
+ *         detectedAt:   detectedAt[f] is the first row detecting fault f, or -1 if no row does
+ *         numOfDetected
+ */
+public class FaultSimulator {
+	public final LevelizedSchedule schedule;
+	public final int numOfFault;
+	public final int[] detectedAt;
+	public int numOfDetected;
+	private final boolean[] isOutput;
+	private final int[] levelOffset;
+
+	public FaultSimulator(LevelizedSchedule schedule){
+		this.schedule = schedule;
+		this.numOfFault = 2 * schedule.order.length;
+		this.detectedAt = new int[numOfFault];
+		this.isOutput = new boolean[schedule.numOfNode];
+		for(int n: schedule.outputPins)
+			isOutput[n] = true;
+		int maxLevel = 0;
+		for(int n = 0; n < schedule.numOfNode; ++n)
+			maxLevel = Math.max(maxLevel, schedule.levels[n]);
+		levelOffset = new int[maxLevel + 2];
+		for(int n = 0; n < schedule.numOfNode; ++n)	//a level can't hold more events than its # of nodes
+			levelOffset[schedule.levels[n] + 1]++;
+		for(int l = 1; l <= maxLevel + 1; ++l)
+			levelOffset[l] += levelOffset[l - 1];
+	}
+
+	public int gateOf(int fault){return schedule.order[fault >>> 1];}
+
+	public int stuckAt(int fault){return fault & 1;}
+
+	/***
+	 * Simulate all faults against all rows of truth table
+	 * @param  pool: fork-join pool, or null to simulate sequentially
+	 * @return # of detected faults
+	 */
+	public int simulate(ForkJoinPool pool){
+		Arrays.fill(detectedAt, -1);
+		if(pool == null)
+			new FaultRange(this, 0, numOfFault, numOfFault).compute();
+		else	//each range evaluates the good circuit again, so make only a few ranges per thread
+			pool.invoke(new FaultRange(this, 0, numOfFault, Math.max(FaultRange.THRESHOLD, numOfFault / (4 * pool.getParallelism()))));
+		numOfDetected = 0;
+		for(int f = 0; f < numOfFault; ++f)
+			if(detectedAt[f] >= 0)
+				numOfDetected++;
+		return numOfDetected;
+	}
+
+	public double coverage(){
+		return numOfFault == 0 ? 100.0 : 100.0 * numOfDetected / numOfFault;
+	}
+
+	/***
+	 * Fork-join task simulating faults [begin, end), each task has its own scratch arrays
+	 */
+	static class FaultRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int THRESHOLD = 64;	//minimum # of faults simulated by a task without splitting
+		final FaultSimulator simulator;
+		final int begin, end, threshold;
+
+		FaultRange(FaultSimulator simulator, int begin, int end, int threshold){
+			this.simulator = simulator;
+			this.begin = begin;
+			this.end = end;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute(){
+			if(end - begin > threshold){
+				int mid = ((begin + end) >>> 2) << 1;		//keep both faults of a gate together
+				invokeAll(new FaultRange(simulator, begin, mid, threshold), new FaultRange(simulator, mid, end, threshold));
+				return;
+			}
+			new Propagation(simulator).run(begin, end);
+		}
+	}
+
+	/***
+	 * Scratch state of one thread: good values, faulty values of the nodes reached by the current fault, and the event queue
+	 */
+	static class Propagation {
+		final FaultSimulator simulator;
+		final LevelizedSchedule schedule;
+		final long[] good;
+		final long[] faulty;
+		final int[] stamp;			//faulty[n] is valid iff stamp[n] == current, otherwise node n has its good value
+		final int[] queued;			//gate n is in the event queue iff queued[n] == current
+		final int[] queue;			//gates of level L are queue[levelOffset[L]] ~ queue[levelEnd[L]-1]
+		final int[] levelEnd;
+		int current = 0;
+
+		Propagation(FaultSimulator simulator){
+			this.simulator = simulator;
+			this.schedule = simulator.schedule;
+			int numOfNode = schedule.numOfNode;
+			good = new long[numOfNode];
+			faulty = new long[numOfNode];
+			stamp = new int[numOfNode];
+			queued = new int[numOfNode];
+			queue = new int[numOfNode];
+			levelEnd = simulator.levelOffset.clone();
+		}
+
+		/***
+		 * ALGORITHM - For each word, evaluate the good circuit, then propagate every undetected fault of [begin, end)
+		 */
+		void run(int begin, int end){
+			int numOfRow = 1 << schedule.numOfInput;
+			int numOfWord = (numOfRow + 63) >>> 6;
+			long mask = (numOfRow >= 64) ? -1L : (1L << numOfRow) - 1;		//with NI < 6 the word repeats the rows
+			int[] detectedAt = simulator.detectedAt;
+			int undetected = end - begin;
+			for(int w = 0; w < numOfWord && undetected > 0; ++w){
+				BitParallelSimulator.evaluateWord(schedule, null, w, good);
+				for(int f = begin; f < end; ++f){
+					if(detectedAt[f] >= 0)
+						continue;
+					long detecting = propagate(simulator.gateOf(f), simulator.stuckAt(f) == 0 ? 0L : -1L, mask);
+					if(detecting != 0){
+						detectedAt[f] = 64 * w + Long.numberOfTrailingZeros(detecting);
+						undetected--;
+					}
+				}
+			}
+		}
+
+		/***
+		 * Force a stuck value on a gate and propagate it through its fan-out cone
+		 * @param  gate
+		 * @param  stuck: 0 or -1, the stuck value in all 64 rows
+		 * @param  mask:  rows of the word belonging to the truth table
+		 * @return rows of the word detecting the fault (some output pin differs), 0 if none
+		 */
+		long propagate(int gate, long stuck, long mask){
+			if(((good[gate] ^ stuck) & mask) == 0)		//not excited
+				return 0;
+			if(simulator.isOutput[gate])
+				return (good[gate] ^ stuck) & mask;
+			if(++current == Integer.MAX_VALUE){		//stamps wrapped around
+				Arrays.fill(stamp, 0);
+				Arrays.fill(queued, 0);
+				current = 1;
+			}
+			int[] levels = schedule.levels, levelOffset = simulator.levelOffset;
+			stamp[gate] = current;
+			faulty[gate] = stuck;
+			int lowest = levels[gate] + 1, highest = enqueue(gate, lowest);
+			long detecting = 0;
+			for(int l = lowest; l <= highest; ++l){
+				for(int q = levelOffset[l]; q < levelEnd[l]; ++q){
+					int n = queue[q];
+					long word = evaluate(n);
+					long diff = (word ^ good[n]) & mask;
+					if(diff == 0)
+						continue;
+					stamp[n] = current;
+					faulty[n] = word;
+					if(simulator.isOutput[n])
+						detecting |= diff;		//other output pins may detect it in lower rows
+					else
+						highest = Math.max(highest, enqueue(n, lowest));
+				}
+				levelEnd[l] = levelOffset[l];
+			}
+			return detecting;
+		}
+
+		/***
+		 * Queue the fan-out gates of node n
+		 * @return highest level of the queued gates, or lowest - 1 if none
+		 */
+		private int enqueue(int n, int lowest){
+			Netlist netlist = schedule.netlist;
+			int highest = lowest - 1;
+			for(int e = netlist.fanOutOffset[n]; e < netlist.fanOutOffset[n + 1]; ++e){
+				int m = netlist.fanOutIndex[e];
+				if(queued[m] != current){
+					queued[m] = current;
+					int level = schedule.levels[m];
+					queue[levelEnd[level]++] = m;
+					highest = Math.max(highest, level);
+				}
+			}
+			return highest;
+		}
+
+		private long value(int n){
+			return stamp[n] == current ? faulty[n] : good[n];
+		}
+
+		private long evaluate(int n){
+			int first = schedule.fanInOffset[n], last = schedule.fanInOffset[n + 1];
+			long word;
+			switch(schedule.types[n]){
+				case 2://OR gate
+					word = 0L;
+					for(int e = first; e < last; ++e)
+						word |= value(schedule.fanInIndex[e]);
+					return word;
+				case 3://NOT gate, the last wire overrides the former ones
+					return ~value(schedule.fanInIndex[last - 1]);
+				default://AND gate, an untyped gate also behaves as AND
+					word = -1L;
+					for(int e = first; e < last; ++e)
+						word &= value(schedule.fanInIndex[e]);
+					return word;
+			}
+		}
+	}
+
+	/***
+	 * Print the fault coverage of each circuit of a file, and the faults no row detects
+	 * @param args: [--threads N] inputFile
+	 */
+	public static void main(String[] args) throws IOException {
+		int threads = 1;
+		String inputFile = null;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("--threads") && i + 1 < args.length)
+				threads = Integer.valueOf(args[++i]);
+			else
+				inputFile = args[i];
+		}
+		if(inputFile == null || threads < 1){
+			System.out.println("Usage: java FaultSimulator [--threads N] inputFile");
+			return;
+		}
+		ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+		NetlistTokenizer tokenizer = new NetlistTokenizer(inputFile);
+		try{
+			ParsedCircuit circuit;
+			while((circuit = tokenizer.next()) != null){
+				LevelizedSchedule schedule = LevelizedSchedule.compile(circuit.netlist);
+				if(schedule == null){
+					System.out.println("Circuit " + (circuit.circuitIndx+1) + ": can't be simulated");
+					continue;
+				}
+				long begin = System.nanoTime();
+				FaultSimulator simulator = new FaultSimulator(schedule);
+				simulator.simulate(pool);
+				System.out.println("Circuit " + (circuit.circuitIndx+1) + ": " + simulator.numOfDetected + " of " + simulator.numOfFault
+						+ " stuck-at faults detected, coverage " + String.format("%.2f", simulator.coverage()) + "% ("
+						+ (System.nanoTime() - begin) / 1000000 + " ms)");
+				for(int f = 0; f < simulator.numOfFault; ++f)
+					if(simulator.detectedAt[f] < 0)
+						System.out.println("	gate " + (simulator.gateOf(f) - schedule.numOfInput + 1) + " stuck-at-" + simulator.stuckAt(f) + " undetected");
+			}
+		}finally{
+			tokenizer.close();
+			if(pool != null)
+				pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.Arrays;
+
+/***
+ * Event-driven incremental evaluation of a LevelizedSchedule.
+ * Rows are visited in Gray-code order, so exactly one input pin toggles between two consecutive rows,
+ * and only gates whose fan-in actually changed are re-evaluated, level by level.
+ * Each gate keeps the # of its fan-in nodes being 1, so re-evaluating an AND/OR gate is O(1) whatever its fan-in is.
+ * Output bits are stored at the binary index of each row, so the truth table is the same as BitParallelSimulator's.
+ */
+public class IncrementalSimulator {
+	public long evaluations;		//# of gate evaluations of the last simulate(), for comparison with numOfRow * order.length
+
+	private final LevelizedSchedule schedule;
+	private final boolean[] values;
+	private final int[] ones;			//ones[n]: # of fan-in nodes of gate n being 1
+	private final boolean[] scheduled;	//scheduled[n]: gate n is in the event queue
+	private final int[] queue;			//event queue, gates of level L are queue[levelOffset[L]] ~ queue[levelEnd[L]-1]
+	private final int[] levelOffset;
+	private final int[] levelEnd;
+	private final int maxLevel;
+
+	public IncrementalSimulator(LevelizedSchedule schedule){
+		this.schedule = schedule;
+		int numOfNode = schedule.numOfNode;
+		values = new boolean[numOfNode];
+		ones = new int[numOfNode];
+		scheduled = new boolean[numOfNode];
+		queue = new int[numOfNode];
+		int max = 0;
+		for(int n = 0; n < numOfNode; ++n)
+			max = Math.max(max, schedule.levels[n]);
+		maxLevel = max;
+		levelOffset = new int[maxLevel + 2];
+		for(int n = 0; n < numOfNode; ++n)	//a level can't hold more events than its # of nodes
+			levelOffset[schedule.levels[n] + 1]++;
+		for(int l = 1; l <= maxLevel + 1; ++l)
+			levelOffset[l] += levelOffset[l - 1];
+		levelEnd = new int[maxLevel + 1];
+	}
+
+	/***
+	 * Simulate a schedule by a new IncrementalSimulator
+	 * @param  schedule
+	 * @return truth table of all output pins, null if schedule is null
+	 */
+	public static TruthTable simulate(LevelizedSchedule schedule){
+		if(schedule == null)
+			return null;
+		return new IncrementalSimulator(schedule).simulate();
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Evaluate row 0 (all input pins 0) from scratch, and count the fan-in nodes being 1 of each gate
+	 * Step2: - For step s = 1 ~ 2^NI-1, the Gray code s^(s>>1) toggles bit t = trailing zeros of s, ie: input pin NI-1-t
+	 * 			- Flip the input pin, update the counters of its fan-out gates and put them into the event queue
+	 * 			- For each level in ascending order, re-evaluate the queued gates,
+	 * 			  a gate whose value changes updates the counters of its fan-out gates and queues them (always on a higher level)
+	 * 			- Store output bits at row s^(s>>1)
+	 * @return truth table of all output pins
+	 */
+	public TruthTable simulate(){
+		int numOfInput = schedule.numOfInput;
+		int[] outputPins = schedule.outputPins;
+		TruthTable table = new TruthTable(numOfInput, outputPins.length);
+		evaluations = 0;
+	//Step1: row 0
+		Arrays.fill(values, false);
+		Arrays.fill(ones, 0);
+		for(int n: schedule.order){
+			for(int e = schedule.fanInOffset[n]; e < schedule.fanInOffset[n + 1]; ++e)
+				if(values[schedule.fanInIndex[e]])
+					ones[n]++;
+			values[n] = evaluate(n);
+			evaluations++;
+		}
+		store(table, 0);
+	//Step2: one toggled input pin per row
+		for(int s = 1; s < table.numOfRow; ++s){
+			int input = numOfInput - 1 - Integer.numberOfTrailingZeros(s);
+			values[input] = !values[input];
+			for(int l = 1; l <= maxLevel; ++l)
+				levelEnd[l] = levelOffset[l];
+			propagate(input);
+			for(int l = 1; l <= maxLevel; ++l){
+				for(int q = levelOffset[l]; q < levelEnd[l]; ++q){
+					int n = queue[q];
+					scheduled[n] = false;
+					evaluations++;
+					boolean bit = evaluate(n);
+					if(bit != values[n]){
+						values[n] = bit;
+						propagate(n);
+					}
+				}
+			}
+			store(table, s ^ (s >>> 1));
+		}
+		return table;
+	}
+
+	/***
+	 * Node n just changed: update the counters of its fan-out gates and queue them
+	 */
+	private void propagate(int n){
+		Netlist netlist = schedule.netlist;
+		int delta = values[n] ? 1 : -1;
+		for(int e = netlist.fanOutOffset[n]; e < netlist.fanOutOffset[n + 1]; ++e){
+			int m = netlist.fanOutIndex[e];
+			ones[m] += delta;
+			if(!scheduled[m]){
+				scheduled[m] = true;
+				queue[levelEnd[schedule.levels[m]]++] = m;
+			}
+		}
+	}
+
+	private boolean evaluate(int n){
+		switch(schedule.types[n]){
+			case 2://OR gate
+				return ones[n] > 0;
+			case 3://NOT gate, the last wire overrides the former ones
+				return !values[schedule.fanInIndex[schedule.fanInOffset[n + 1] - 1]];
+			default://AND gate, an untyped gate also behaves as AND
+				return ones[n] == schedule.fanInOffset[n + 1] - schedule.fanInOffset[n];
+		}
+	}
+
+	/***
+	 * Set the bits of output pins being 1 at the given row, straight into the table (its words start at 0)
+	 */
+	private void store(TruthTable table, int row){
+		int[] outputPins = schedule.outputPins;
+		for(int k = 0; k < outputPins.length; ++k)
+			if(values[outputPins[k]])
+				table.setWord(k, row >>> 6, table.getWord(k, row >>> 6) | (1L << (row & 63)));
+	}
+}
@@ -0,0 +1,144 @@
+package GarminConnectInterviewAdjacencyTable;
+
+/***
+ *
+ * A LevelizedSchedule is the compiled, read-only evaluation plan of one circuit.
+ * It is built once per circuit, so the topological sort and the cycle check no longer run for every row of the truth table.
+ * @param  netlist:     the circuit in CSR form, its arrays are shared and never modified
+ *         numOfInput:  # of input pins, nodes 0 ~ numOfInput-1 are input pins
+ *         numOfNode:   # of input pins and logic gates
+ *         types:       types[n] is the type of node n (1:AND gate, 2:OR gate, 3:NOT gate, -1:input pin)
+ *         fanInOffset, fanInIndex: fan-in nodes of node n are fanInIndex[fanInOffset[n]] ~ fanInIndex[fanInOffset[n+1]-1]
+ *         levels:      levels[n] is 0 for nodes without incoming edges, otherwise 1 + max level of its fan-in nodes
+ *         order:       indices of the gates to evaluate, sorted by level (a valid topological order)
+ *         outputPins:  indices of gates without outgoing edges (type > 0), in ascending order
+ * @method
+ *         compile(netlist):        build the schedule, return null if the circuit can't be evaluated
+ *         evaluate(row, values):   evaluate one row of truth table into values[], without touching the netlist
+ *         withOutputPins(pins):    same schedule whose outputs are the given nodes, eg: after NetlistOptimizer merged output pins into other nodes
+ */
+class LevelizedSchedule {
+	public final Netlist netlist;
+	public final int numOfInput;
+	public final int numOfNode;
+	public final int[] types;
+	public final int[] fanInOffset;
+	public final int[] fanInIndex;
+	public final int[] levels;
+	public final int[] order;
+	public final int[] outputPins;
+
+	private LevelizedSchedule(Netlist netlist, int[] levels, int[] order, int[] outputPins){
+		this.netlist = netlist;
+		this.numOfInput = netlist.numOfInput;
+		this.numOfNode = netlist.numOfNode;
+		this.types = netlist.types;
+		this.fanInOffset = netlist.fanInOffset;
+		this.fanInIndex = netlist.fanInIndex;
+		this.levels = levels;
+		this.order = order;
+		this.outputPins = outputPins;
+	}
+
+	/***
+	 * ALGORITHM - Kahn's algorithm performed once, level by level, on primitive in-degree counters.
+	 * step1: S = all nodes without incoming edges (level 0).
+	 * 		  While S is non-empty:
+	 * 			  - For each node n in S, decrease the in-degree counter of each node m pointed by n.
+	 * 			  - Nodes whose counter drops to 0 form the next level, and are appended to order.
+	 * step2: If some node is never reached, there is a cycle and no output can be determined, return null.
+	 * 		  If a gate without any input wire drives another gate or an output pin, its value is undefined, return null.
+	 *
+	 * @param  netlist: parsed circuit, null is passed through
+	 * @return compiled schedule, or null if the netlist is null, has a cycle or an undefined gate
+	 */
+	public static LevelizedSchedule compile(Netlist netlist){
+		if(netlist == null) return null;
+		int numOfNode = netlist.numOfNode;
+	//Step1: peel off the graph level by level
+		int[] counter = new int[numOfNode];
+		int[] levels = new int[numOfNode];
+		int[] order = new int[numOfNode];
+		int sizeOfOrder = 0;
+		int[] S = new int[numOfNode];		//S[begin, end) is the current level
+		int end = 0;
+		for(int n = 0; n < numOfNode; ++n){
+			counter[n] = netlist.inDegree(n);
+			if(counter[n] == 0)
+				S[end++] = n;
+		}
+		int begin = 0;
+		while(begin < end){
+			int levelEnd = end;
+			for(; begin < levelEnd; ++begin){	//for each node n in current level
+				int n = S[begin];
+				for(int e = netlist.fanOutOffset[n]; e < netlist.fanOutOffset[n + 1]; ++e){	//for each node m pointed by node n
+					int m = netlist.fanOutIndex[e];
+					if(--counter[m] == 0){
+						levels[m] = levels[n] + 1;
+						S[end++] = m;
+						order[sizeOfOrder++] = m;
+					}
+				}
+			}
+		}
+	//Step2: cycle and undefined gate check
+		if(end < numOfNode){
+			System.out.println("There is a cycle in the graph!");
+			return null;
+		}
+		int numOfOutput = 0;
+		for(int n = netlist.numOfInput; n < numOfNode; ++n){
+			if(netlist.inDegree(n) == 0 && (netlist.outDegree(n) > 0 || netlist.types[n] > 0))	//gate without input wire can't be read
+				return null;
+			if(netlist.outDegree(n) == 0 && netlist.types[n] > 0)
+				numOfOutput++;
+		}
+		int[] outputPins = new int[numOfOutput];
+		for(int n = netlist.numOfInput, k = 0; n < numOfNode; ++n){
+			if(netlist.outDegree(n) == 0 && netlist.types[n] > 0)
+				outputPins[k++] = n;
+		}
+		int[] trimmedOrder = new int[sizeOfOrder];
+		System.arraycopy(order, 0, trimmedOrder, 0, sizeOfOrder);
+		return new LevelizedSchedule(netlist, levels, trimmedOrder, outputPins);
+	}
+
+	/***
+	 * @param  outputPins: nodes whose values are the outputs of the circuit, any node may be listed, even more than once
+	 * @return schedule sharing netlist, levels and order with this one
+	 */
+	public LevelizedSchedule withOutputPins(int[] outputPins){
+		return new LevelizedSchedule(netlist, levels, order, outputPins);
+	}
+
+	/***
+	 * Evaluate one row of truth table against this schedule.
+	 * @param rowInTruthTable: eg: rowIntruthTable=[1,1,0] when there are three input pins
+	 * @param values:          scratch array of size numOfNode, values[n] holds the output bit of node n after evaluation
+	 */
+	public void evaluate(Boolean[] rowInTruthTable, boolean[] values){
+		for(int i = 0; i < numOfInput; ++i)
+			values[i] = rowInTruthTable[i];
+		for(int n: order){
+			int first = fanInOffset[n], last = fanInOffset[n + 1];
+			boolean bit;
+			switch(types[n]){
+				case 2://OR gate
+					bit = false;
+					for(int e = first; e < last; ++e)
+						bit |= values[fanInIndex[e]];
+					break;
+				case 3://NOT gate, the last wire overrides the former ones
+					bit = !values[fanInIndex[last - 1]];
+					break;
+				default://AND gate, an untyped gate also behaves as AND
+					bit = true;
+					for(int e = first; e < last; ++e)
+						bit &= values[fanInIndex[e]];
+					break;
+			}
+			values[n] = bit;
+		}
+	}
+}
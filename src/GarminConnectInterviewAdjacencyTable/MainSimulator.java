@@ -1,10 +1,13 @@
 package GarminConnectInterviewAdjacencyTable;
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
 /***
  * According to the question, only those logic gates without outgoing wire are considered as the output of a circuit.
  * That is, I can assume that all input pins are connected with at least one logic gate.
@@ -18,84 +21,298 @@ import java.util.HashSet;
 public class MainSimulator {
 	/***
      * ALGORITHM
-     * Step1:  - Read input file
+     * Step1:  - Read input file by NetlistTokenizer, one circuit at a time
      * Step2:  - For each circuit:
-     * 				- Construct a two-dimensional adjacency table in size of (# of gates and input pins) x (# of gates and input pins)
-     * 				  eg: adjacencyTable[n][m] = 1, which means that node n points to node m 
-     * 				- Construct a directed acyclic graph (Each node in the graph represents either an input pin or a logic gate, connected with zero to multiple directed edges)
-     * 				- For each combination(row) of truth value:
-     * 					Perform BFS to make logic operation
+     * 				- Parse the circuit into a Netlist, fan-in and fan-out of each node are stored as offset/index int arrays (CSR)
+     * 				  eg: fan-in nodes of node m are fanInIndex[fanInOffset[m]] ~ fanInIndex[fanInOffset[m+1]-1]
+     * 				- Compile the netlist into a LevelizedSchedule (topological order and cycle check are done only once)
+     * 				- Evaluate the schedule by a SimulationEngine, eg: 64 combinations(rows) of truth value at a time by BitParallelSimulator
      * Step3:  - write file 					
 	 * @param args[0]: input file name from cmd
 	 * 		  args[1]: output file name from cmd
+	 * 		  --threads N: evaluate rows of each circuit on N threads, output is identical to the sequential run
+	 * 		  --workers N: pipelined batch mode, parse, simulate(on N workers) and write circuits concurrently
+	 * 		  --engine NAME: SimulationEngine of every circuit, auto(default) lets EngineSelector pick one per circuit from NI, NG and edge density
+	 * 		  --jit: compile each circuit into straight-line bytecode before simulation (--engine jit)
+	 * 		  --incremental: walk rows in Gray-code order and re-evaluate only gates whose fan-in changed (--engine incremental)
+	 * 		  --bdd: evaluate outputs symbolically as BDDs by BddEngine, then traverse them into rows (--engine bdd)
+	 * 		  --optimize: fold constants, buffers, double NOTs and duplicated gates, and drop dead gates before simulation
+	 * 		  --verbose: print gates before -> after --optimize of each circuit
+	 * 		  --cache MB, --cache-dir DIR: reuse truth tables of circuits seen before, by ResultCache
+	 * 		  --mmap: read the input file through memory mappings by MappedNetlistReader
+	 * 		  --binary: write the bit-packed binary output format by BinaryTruthTableWriter instead of text
+	 * 		  --metrics FILE: record time of each phase, gates, rows and bytes of each circuit into a JSON file
+	 * 		  --jmx: with --serve only, export the totals as a JMX MBean
+	 * 		  --serve PORT: keep running as SimulationServer on localhost, no input or output file
+	 * 		  --processes N, --listen PORT, --shard-size N: sharded mode, ShardCoordinator sends shards of circuits to worker JVMs
+	 * 		  --connect HOST:PORT: run as a ShardWorker of a coordinator, no input or output file
+	 * 		  --checkpoint SECONDS, --resume: journal the written circuits by CheckpointJournal, and skip them after a crash
+	 * 		  equiv firstFile secondFile: check circuit k of both files for equivalence by EquivalenceChecker, instead of writing truth tables
 	 */
 	
 	public static void main(String[] args){
-//Step1: read file and each circuit is a string element in arrayList，
-			ArrayList<String> circuits = new ArrayList<String>();		//ArrayList containing many circuits in form of string
-			circuits = readFile(args[0]);
-	
-//Step2: For each circuit in ArrayList, create a truth table and a directed acyclic graph, then perform breadth first operation
-			String content = "";
-			for(int circuitIndx = 0; circuitIndx < circuits.size(); ++circuitIndx){
-				String title = "Circuit "  + (circuitIndx+1) + ": ";				//For file writing
-				String body = "";										//For file writing
-				int numOfInputPin = 0, numOfOutput = 0;					//numOfInput = # of input pins, numOfOutput = # of output pins	
-				Boolean[][] truthTable;
-				
+		if(args.length > 0 && args[0].equals("equiv")){		//equiv firstFile secondFile, no truth table is written
+			try{
+				EquivalenceChecker.main(Arrays.copyOfRange(args, 1, args.length));
+			}catch(IOException e){System.out.println("File read error!");}
+			return;
+		}
+		SimulatorOptions options;
+		try{
+			options = SimulatorOptions.parse(args);
+		}catch(IllegalArgumentException e){
+			System.out.println(e.getMessage());
+			return;
+		}
+		if(options.port > 0){
+			try{
+				SimulationServer.serve(options);
+			}catch(IOException e){System.out.println("Can't listen on port " + options.port + ": " + e.getMessage());}
+			return;
+		}
+		if(options.coordinatorHost != null){		//worker of sharded mode
+			try{
+				ShardWorker.work(options);
+			}catch(IOException e){System.out.println("Can't reach coordinator " + options.coordinatorHost + ":" + options.coordinatorPort + ": " + e.getMessage());}
+			return;
+		}
+		CheckpointJournal journal;
+		try{
+			journal = CheckpointJournal.open(options);
+		}catch(IOException e){
+			System.out.println("Can't read checkpoint journal: " + e.getMessage());
+			return;
+		}
+		if(options.processes > 0 || options.listenPort > 0){		//coordinator of sharded mode
+			try{
+				ShardCoordinator.run(options, journal);
+				if(journal != null)
+					journal.finish();
+			}catch(IOException e){System.out.println("Sharded run failed: " + e.getMessage());}
+			return;
+		}
+		ForkJoinPool pool = (options.threads > 1) ? new ForkJoinPool(options.threads) : null;
+		ResultCache cache = options.createCache();
+		SimulationMetrics metrics = options.createMetrics();
+		if(options.workers > 0){	//pipelined batch mode
+			try{
+				BatchPipeline.run(options, pool, cache, metrics, journal);
+				if(journal != null)
+					journal.finish();
+			}catch(IOException e){System.out.println("File IOException");}
+		}else{
+//Step1: read file, NetlistTokenizer parses circuits one at a time
+//Step2: For each circuit, compile and simulate it
+//step3: write output of each circuit into file as soon as it is simulated
+			try{
+				CircuitWriter writer = openWriter(options, journal);
 				try{
-					numOfInputPin = Integer.valueOf(circuits.get(circuitIndx).split("\n")[0]);
-					truthTable = createTruthTable(numOfInputPin);			//create truth table
-					ArrayList<Object> DAGandTable = constructDAGandAdjacencyTable(circuits.get(circuitIndx));	//construct DAG and adjacencyTable
-					ArrayList<Node> graph = (ArrayList<Node>)DAGandTable.get(0);
-					Integer[][] adjacencyTable =(Integer[][])DAGandTable.get(1);	
-					for(Boolean[] row: truthTable){//for each row in truth table, perform BFO
-						Integer[][] adjacencyTableCopy = deepCopyAdjacencyTable(adjacencyTable);
-						for(Boolean bit: row)
-							body += ((bit==false ? "0" : "1") + " ");
-						graph = BreadthFirstOperation.operation(row, graph, adjacencyTableCopy, numOfInputPin);	//nullPointerException happens if: 1. file format error, 2. wrong linkage assignment, 3. against size restriction
-						ArrayList<Node> outputPins = new ArrayList<Node>();	//ArrayList only containing output pins of a circuit, and it updates w.r.t row
-						for(Node n: graph){
-							if(n.isEndNode && n.type > 0)
-								outputPins.add(n);
-						}	
-						numOfOutput = outputPins.size();	//output string process	
-						body += "|";
-						for(Node node: outputPins)
-							body += " " + (node.outBit==true ? 1 : 0);	
-						body += "\n";
-						
-						for(Node n: graph)
-							n.clear();
-					}//end each row in truth table
-					title += numOfOutput + " output pin" + (numOfOutput>1 ? "s" : "") + "\nTruth table:\n";	//output string process(combine title, heads, and body)
-					String head1 = "", head2 = "", head3 = "";
-					for(int tmp = 0; tmp < numOfInputPin; ++tmp){
-						head1 += "i ";
-						head2 += (tmp+1) +" ";
-						head3 += "--";
-					}
-					head1 += "|";
-					head2 += "|";
-					head3 += "+";
-					for(int tmp = 0; tmp < numOfOutput; ++tmp){
-						head1 += " o";
-						head2 += " " + (tmp+1);
-						head3 += "--";
+					CircuitSource tokenizer = openSource(options, journal);
+					try{
+						while(true){
+							long begin = (metrics == null) ? 0 : System.nanoTime();
+							ParsedCircuit circuit = tokenizer.next();
+							if(circuit == null)
+								break;
+							CircuitMetrics record = (metrics == null) ? null : new CircuitMetrics(circuit.circuitIndx, System.nanoTime() - begin);
+							writeCircuit(writer, circuit, simulateCircuit(circuit, pool, cache, options, record), record);
+							if(record != null)
+								metrics.add(record);
+							if(journal != null)
+								journal.written(circuit.circuitIndx + 1, writer);
+						}
+					}finally{
+						tokenizer.close();
 					}
-					title += head1 +"\n" + head2 + "\n" + head3 + "\n" + body +"\n";
-					content += title;					
-				}catch(NumberFormatException e){
-					System.out.println("Circuit " + (circuitIndx+1) + " error: Wrong input file format in Circuit " + (circuitIndx+1) + "!");
-					content += "Circuit " + (circuitIndx+1) + " error: Wrong input file format!\n\n";
-				}catch(NullPointerException e){
-					System.out.println("Circuit " + (circuitIndx+1) + " error: There might be wrong linkage assignment or against size restriction in Circuit " + (circuitIndx+1) + "!");
-					content += "Circuit " + (circuitIndx+1) + " error: There might be wrong linkage assignment or against size restriction!\n\n";
-				}	
-			}//for each circuit in circuits
-//step3: write output of each circuit into file			
-		writeFile(args[1], content);
+				}finally{
+					writer.close();
+				}
+				if(journal != null)
+					journal.finish();
+			}catch(IOException e){System.out.println("File IOException");}
+		}
+		if(pool != null)
+			pool.shutdown();
+		if(cache != null)
+			System.out.println(cache);
+		if(options.metricsFile != null){
+			try{
+				metrics.writeJson(options.metricsFile);
+			}catch(IOException e){System.out.println("Can't write metrics file " + options.metricsFile);}
+		}
+	}
+	
+	/***
+	 * Compile and simulate one circuit
+	 * @param circuit: circuit parsed by NetlistTokenizer
+	 * @param pool:    fork-join pool to evaluate rows, or null
+	 * @param cache:   truth tables of circuits simulated before, or null
+	 * @param options: --optimize shrinks the circuit by NetlistOptimizer, --engine picks the SimulationEngine, auto lets EngineSelector pick one, bitParallel takes over if the engine gives up
+	 * @return truth table of the circuit, or null if 1. file format error, 2. wrong linkage assignment, 3. against size restriction
+	 */
+	public static TruthTable simulateCircuit(ParsedCircuit circuit, ForkJoinPool pool, ResultCache cache, SimulatorOptions options){
+		return simulateCircuit(circuit, pool, cache, options, null);
+	}
+
+	/***
+	 * Same as simulateCircuit(circuit, pool, cache, options), and record compile and simulate phases
+	 * @param metrics: record of the circuit, filled with time, engine, gates, rows and allocation, or null if metrics are off
+	 */
+	public static TruthTable simulateCircuit(ParsedCircuit circuit, ForkJoinPool pool, ResultCache cache, SimulatorOptions options, CircuitMetrics metrics){
+		long begin = 0, allocated = 0;
+		if(metrics != null){
+			begin = System.nanoTime();
+			allocated = SimulationMetrics.allocatedBytes();
+		}
+		String key = null;
+		if(cache != null && circuit.netlist != null){
+			key = ResultCache.key(circuit.netlist);
+			TruthTable table = cache.get(key);
+			if(table != null){		//hit, skip compile and simulation
+				if(metrics != null){
+					metrics.engine = "cache";
+					metrics.rows = table.numOfRow;
+					metrics.compileNanos = System.nanoTime() - begin;
+				}
+				return table;
+			}
+		}
+		LevelizedSchedule schedule = LevelizedSchedule.compile(circuit.netlist);	//topological order and cycle check, done once per circuit
+		if(schedule == null){
+			if(metrics != null)
+				metrics.compileNanos = System.nanoTime() - begin;
+			return null;
+		}
+		if(options.optimize){
+			LevelizedSchedule optimized = NetlistOptimizer.optimize(schedule);
+			if(options.verbose)		//may grow, eg: an output pin which is an inverted input pin gets a NOT gate
+				System.out.println("Circuit " + (circuit.circuitIndx+1) + ": optimizer " + schedule.order.length + " -> " + optimized.order.length + " gates");
+			if(metrics != null)
+				metrics.gatesBeforeOptimize = schedule.order.length;
+			schedule = optimized;
+		}
+		long numOfRow = 1L << schedule.numOfInput;
+		if(metrics != null){
+			metrics.compileNanos = System.nanoTime() - begin;
+			metrics.engine = options.engine.name();
+			metrics.gateEvaluations = schedule.order.length * numOfRow;
+		}
+		TruthTable table = options.engine.simulate(schedule, pool, metrics);
+		if(table == null)		//eg: the BDDs outgrow their node bound
+			table = EngineSelector.fallback(schedule, pool, metrics);
+		if(key != null)
+			cache.put(key, table);
+		if(metrics != null){
+			long end = System.nanoTime(), after = SimulationMetrics.allocatedBytes();
+			metrics.simulateNanos = end - begin - metrics.compileNanos;
+			metrics.gates = schedule.order.length;
+			metrics.rows = numOfRow;
+			if(allocated >= 0 && after >= 0)
+				metrics.allocatedBytes = after - allocated;
+		}
+		return table;
+	}
+	
+	/***
+	 * Write the truth table of a circuit, or its error message if it can't be simulated, then release the truth table
+	 * @param writer
+	 * @param circuit
+	 * @param truthTable: result of simulateCircuit, its off-heap words are given back once written
+	 * @throws IOException
+	 */
+	public static void writeCircuit(CircuitWriter writer, ParsedCircuit circuit, TruthTable truthTable) throws IOException {
+		writeCircuit(writer, circuit, truthTable, null);
+	}
+
+	/***
+	 * Same as writeCircuit(writer, circuit, truthTable), and record the write phase and bytes written
+	 * @param metrics: record of the circuit, or null if metrics are off
+	 */
+	public static void writeCircuit(CircuitWriter writer, ParsedCircuit circuit, TruthTable truthTable, CircuitMetrics metrics) throws IOException {
+		try{
+			if(metrics == null){
+				writer.writeCircuit(circuit, truthTable);
+				return;
+			}
+			long begin = System.nanoTime(), size = writer.size();
+			writer.writeCircuit(circuit, truthTable);
+			metrics.writeNanos = System.nanoTime() - begin;
+			metrics.bytesWritten = writer.size() - size;
+		}finally{
+			if(truthTable != null)
+				truthTable.release();
+		}
+	}
 
+	/***
+	 * Open the input file as a byte stream, or through memory mappings with --mmap
+	 */
+	static CircuitSource openSource(SimulatorOptions options) throws IOException {
+		if(options.mmap)
+			return new MappedNetlistReader(options.inputFile, Runtime.getRuntime().availableProcessors());
+		return new NetlistTokenizer(options.inputFile);
+	}
+
+	/***
+	 * Same as openSource(options), and on --resume skip the circuits already written (they are parsed to find the next one, not simulated)
+	 * @param journal: checkpoint journal, or null if checkpoints are off
+	 */
+	static CircuitSource openSource(SimulatorOptions options, CheckpointJournal journal) throws IOException {
+		CircuitSource source = openSource(options);
+		for(int c = 0; journal != null && c < journal.resumeCircuit && source.next() != null; ++c);
+		return source;
+	}
+
+	/***
+	 * Open the output file in text format, or in binary format with --binary
+	 */
+	static CircuitWriter openWriter(SimulatorOptions options) throws IOException {
+		return openWriter(options, null);
+	}
+
+	/***
+	 * Same as openWriter(options), and on --resume keep the output of the circuits already written
+	 * @param journal: checkpoint journal, or null if checkpoints are off
+	 */
+	static CircuitWriter openWriter(SimulatorOptions options, CheckpointJournal journal) throws IOException {
+		long offset = (journal == null) ? 0 : journal.resumeBytes;
+		if(options.binary)
+			return new BinaryTruthTableWriter(options.outputFile, offset);
+		return new TruthTableWriter(options.outputFile, offset);
+	}
+	
+	/***
+	 * Print error of a circuit, and return the error message for output file
+	 * @param circuit
+	 * @return error message
+	 */
+	public static String errorMessage(ParsedCircuit circuit){
+		int circuitIndx = circuit.circuitIndx;
+		if(circuit.error != null)
+			System.out.println("Circuit " + (circuitIndx+1) + " " + circuit.error);
+		if(errorStatus(circuit) == ParsedCircuit.FORMAT_ERROR)
+			System.out.println("Circuit " + (circuitIndx+1) + " error: Wrong input file format in Circuit " + (circuitIndx+1) + "!");
+		else
+			System.out.println("Circuit " + (circuitIndx+1) + " error: There might be wrong linkage assignment or against size restriction in Circuit " + (circuitIndx+1) + "!");
+		return errorText(circuitIndx, errorStatus(circuit));
+	}
+
+	/***
+	 * Status of a circuit which can't be simulated: its parse error, otherwise a cycle or undefined gate counts as linkage error
+	 */
+	static int errorStatus(ParsedCircuit circuit){
+		return circuit.status == ParsedCircuit.FORMAT_ERROR ? ParsedCircuit.FORMAT_ERROR : ParsedCircuit.LINKAGE_ERROR;
+	}
+
+	/***
+	 * Error message of a circuit in output file
+	 * @param circuitIndx: index of the circuit, starting from 0
+	 * @param status:      ParsedCircuit.FORMAT_ERROR or LINKAGE_ERROR
+	 */
+	static String errorText(int circuitIndx, int status){
+		if(status == ParsedCircuit.FORMAT_ERROR)
+			return "Circuit " + (circuitIndx+1) + " error: Wrong input file format!\n\n";
+		return "Circuit " + (circuitIndx+1) + " error: There might be wrong linkage assignment or against size restriction!\n\n";
 	}
 	
 	/***
@@ -219,17 +436,21 @@ public class MainSimulator {
 	 * @return
 	 */
 	public static ArrayList<String> readFile(String fileName){		
-		String doc="", line="";
+		StringBuilder doc = new StringBuilder();
+		String line = "";
 //step1: read file as a string <- doc
 		try {
 			BufferedReader br = new BufferedReader(new FileReader(fileName));
-			while((line = br.readLine()) != null){
-					doc += line + "\n";
+			try{
+				while((line = br.readLine()) != null)
+					doc.append(line).append('\n');
+			}finally{
+				br.close();
 			}
 		}catch (IOException e){System.out.println("File read error!");}		
 //step2: split doc into ArrayList<String> where each element represents a circuit
 		ArrayList<String> circuits = new ArrayList<String>(); 
-		String[] lines = doc.split("\n");
+		String[] lines = doc.toString().split("\n");
 		String circuit = "";
 		for(int i = 0; i < lines.length - 1; i++){
 			if(lines[i].contains(" ") && !lines[i+1].contains(" ")){
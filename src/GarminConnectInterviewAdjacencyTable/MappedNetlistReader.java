@@ -0,0 +1,327 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * 
+ * Zero-copy reader of netlist files, for archives too large to stream through the heap.
+ * The file is mapped with FileChannel.map and never decoded into Strings: circuit boundaries are found by scanning the mapped bytes
+ * in parallel chunks, then each circuit is parsed on demand straight from its mapped region by NetlistTokenizer.Builder.
+ * Circuits and errors are exactly the same as NetlistTokenizer's (see its rules), including line numbers of error details.
+ * @method
+ *         size():      # of circuits in the file
+ *         parse(k):    parse circuit k, thread-safe, so circuits can be handed to simulation workers by index
+ *         next():      parse circuits one by one in input order
+ *         close():     unmap the regions and close the file, no circuit may be parsed afterwards
+ */
+class MappedNetlistReader implements CircuitSource {
+	static final long REGION_SIZE = 1L << 30;		//circuits are mapped in regions of up to 1 GB
+	static final long WINDOW_SIZE = 64L << 20;		//window of a chunk scanner
+	static final long MIN_CHUNK_SIZE = 4L << 20;	//a file is split into chunks of at least 4 MB
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+	private long[] circuitBegin;		//circuit k is bytes [circuitBegin[k], circuitBegin[k+1])
+	private int[] circuitLine;			//line number of the first line of circuit k
+	private int numOfCircuit;
+	private MappedByteBuffer[] regions;
+	private long[] regionBegin;
+	private int[] circuitRegion;		//index of the region holding circuit k, -1 if it can't be mapped as one buffer
+	private int nextCircuit = 0;
+
+	/***
+	 * Map the file and find circuit boundaries
+	 * @param fileName
+	 * @param numOfThread: # of threads scanning chunks of the file
+	 * @throws IOException
+	 */
+	public MappedNetlistReader(String fileName, int numOfThread) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		channel = file.getChannel();
+		size = channel.size();
+		try{
+			index(Math.max(1, numOfThread));
+		}catch(IOException e){
+			file.close();
+			throw e;
+		}
+		try{
+			mapRegions();
+		}catch(IOException e){
+			close();
+			throw e;
+		}
+	}
+
+	public int size(){return numOfCircuit;}
+
+	/***
+	 * Boundaries found in one chunk of the file, lines are those starting in [begin, end)
+	 */
+	static class Chunk {
+		long numOfLine = 0;
+		long firstLine;						//byte offset of the first line
+		boolean firstHasSpace, lastHasSpace;
+		long lastNonEmptyLine = -1;			//byte offset of the last non-empty line, -1 if none
+		long[] starts = new long[16];		//lines without " " following a line with " ", and their line index in chunk
+		long[] lines = new long[16];
+		int numOfStart = 0;
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Split the file into chunks and scan them in parallel: each chunk records the lines without " " following a line with " "
+	 * Step2: - Join chunks in order: a chunk's first line is a boundary if the last line of the former chunks has " ",
+	 * 			line numbers are shifted by the # of lines of the former chunks
+	 * Step3: - Drop boundaries among the empty lines at the end of file (they are never read), and the circuit after the last boundary
+	 */
+	private void index(int numOfThread) throws IOException {
+		int numOfChunk = (int)Math.max(1, Math.min(numOfThread * 4L, size / MIN_CHUNK_SIZE));
+	//Step1: scan chunks
+		List<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numOfThread, numOfChunk));
+		try{
+			for(int c = 0; c < numOfChunk; ++c){
+				final long begin = size * c / numOfChunk, end = size * (c + 1) / numOfChunk;
+				futures.add(executor.submit(new Callable<Chunk>(){
+					public Chunk call() throws IOException {return scan(begin, end);}
+				}));
+			}
+			Chunk[] chunks = new Chunk[numOfChunk];
+			for(int c = 0; c < numOfChunk; ++c)
+				chunks[c] = futures.get(c).get();
+		//Step2: join
+			long lastNonEmptyLine = -1;
+			for(Chunk chunk: chunks)
+				lastNonEmptyLine = Math.max(lastNonEmptyLine, chunk.lastNonEmptyLine);
+			long[] begins = new long[16];
+			long[] lines = new long[16];
+			int count = 0;
+			long numOfLine = 0;
+			boolean previousHasSpace = false;
+			for(Chunk chunk: chunks){
+				if(chunk.numOfLine == 0)
+					continue;
+				boolean firstIsBoundary = (numOfLine == 0) || (previousHasSpace && !chunk.firstHasSpace);
+				for(int i = -1; i < chunk.numOfStart; ++i){
+					long begin, line;
+					if(i < 0){
+						if(!firstIsBoundary) continue;
+						begin = chunk.firstLine;
+						line = 0;
+					}else{
+						begin = chunk.starts[i];
+						line = chunk.lines[i];
+					}
+				//Step3: boundaries after the last non-empty line are never read
+					if(begin > lastNonEmptyLine) continue;
+					if(count == begins.length){
+						begins = Arrays.copyOf(begins, count * 2);
+						lines = Arrays.copyOf(lines, count * 2);
+					}
+					begins[count] = begin;
+					lines[count++] = numOfLine + line + 1;
+				}
+				numOfLine += chunk.numOfLine;
+				previousHasSpace = chunk.lastHasSpace;
+			}
+			numOfCircuit = Math.max(0, count - 1);	//the circuit after the last boundary never ends
+			circuitBegin = Arrays.copyOf(begins, count);
+			circuitLine = new int[count];
+			for(int k = 0; k < count; ++k)
+				circuitLine[k] = (int)Math.min(Integer.MAX_VALUE, lines[k]);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while indexing");
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException(e.getCause());
+		}finally{
+			executor.shutdown();
+		}
+	}
+
+	/***
+	 * Mapped window moving forward over the file, so a chunk can read lines crossing its end.
+	 * The former window is unmapped when it moves, and the last one on close().
+	 */
+	class Window {
+		MappedByteBuffer buffer;
+		long begin = 0, end = 0;
+
+		int get(long position) throws IOException {
+			if(position < begin || position >= end){
+				close();
+				begin = position;
+				end = Math.min(size, position + WINDOW_SIZE);
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, begin, end - begin);
+			}
+			return buffer.get((int)(position - begin));
+		}
+
+		void close(){
+			if(buffer != null)
+				DirectBufferPool.free(buffer);
+			buffer = null;
+		}
+	}
+
+	/***
+	 * Offset of the first line starting at or after position, a line starts after "\n", "\r" or "\r\n"
+	 */
+	private long firstLineStart(long position, Window window) throws IOException {
+		if(position == 0) return 0;
+		int previous = window.get(position - 1);
+		while(position < size){
+			int b = window.get(position);
+			if(previous == '\n' || (previous == '\r' && b != '\n'))
+				return position;
+			previous = b;
+			position++;
+		}
+		return size;
+	}
+
+	/***
+	 * Scan lines starting in [begin, end)
+	 */
+	private Chunk scan(long begin, long end) throws IOException {
+		Chunk chunk = new Chunk();
+		Window window = new Window();
+		try{
+			scan(chunk, begin, end, window);
+		}finally{
+			window.close();
+		}
+		return chunk;
+	}
+
+	private void scan(Chunk chunk, long begin, long end, Window window) throws IOException {
+		long position = firstLineStart(begin, window);
+		chunk.firstLine = position;
+		boolean previousHasSpace = false;
+		while(position < end && position < size){
+			long lineBegin = position;
+			boolean hasSpace = false;
+			int b = 0;
+			while(position < size && (b = window.get(position)) != '\n' && b != '\r'){
+				if(b == ' ') hasSpace = true;
+				position++;
+			}
+			if(position > lineBegin)
+				chunk.lastNonEmptyLine = lineBegin;
+			if(position < size){		//skip line ending
+				position++;
+				if(b == '\r' && position < size && window.get(position) == '\n')
+					position++;
+			}
+			if(chunk.numOfLine == 0)
+				chunk.firstHasSpace = hasSpace;
+			else if(previousHasSpace && !hasSpace){
+				if(chunk.numOfStart == chunk.starts.length){
+					chunk.starts = Arrays.copyOf(chunk.starts, chunk.numOfStart * 2);
+					chunk.lines = Arrays.copyOf(chunk.lines, chunk.numOfStart * 2);
+				}
+				chunk.starts[chunk.numOfStart] = lineBegin;
+				chunk.lines[chunk.numOfStart++] = chunk.numOfLine;
+			}
+			previousHasSpace = hasSpace;
+			chunk.numOfLine++;
+		}
+		chunk.lastHasSpace = previousHasSpace;
+	}
+
+	/***
+	 * Group consecutive circuits into mapped regions of up to REGION_SIZE bytes, a larger circuit gets a region of its own
+	 */
+	private void mapRegions() throws IOException {
+		circuitRegion = new int[numOfCircuit];
+		ArrayList<MappedByteBuffer> mapped = new ArrayList<MappedByteBuffer>();
+		ArrayList<Long> begins = new ArrayList<Long>();
+		for(int k = 0; k < numOfCircuit; ){
+			long begin = circuitBegin[k];
+			if(circuitBegin[k + 1] - begin > Integer.MAX_VALUE){
+				circuitRegion[k++] = -1;
+				continue;
+			}
+			int last = k;
+			while(last + 1 < numOfCircuit && circuitBegin[last + 2] - begin <= REGION_SIZE)
+				last++;
+			try{
+				mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, begin, circuitBegin[last + 1] - begin));
+			}catch(IOException e){
+				regions = mapped.toArray(new MappedByteBuffer[mapped.size()]);		//so close() unmaps the regions mapped so far
+				throw e;
+			}
+			begins.add(begin);
+			for(; k <= last; ++k)
+				circuitRegion[k] = mapped.size() - 1;
+		}
+		regions = mapped.toArray(new MappedByteBuffer[mapped.size()]);
+		regionBegin = new long[begins.size()];
+		for(int r = 0; r < regionBegin.length; ++r)
+			regionBegin[r] = begins.get(r);
+	}
+
+	/***
+	 * Parse circuit k from its mapped region, line by line, without copying its bytes
+	 * @param  k: index of circuit, 0 ~ size()-1
+	 * @return parsed circuit
+	 */
+	public ParsedCircuit parse(int k){
+		NetlistTokenizer.Builder builder = new NetlistTokenizer.Builder(k);
+		if(circuitRegion[k] < 0){
+			builder.fail(ParsedCircuit.LINKAGE_ERROR, circuitLine[k], 1, "circuit is larger than 2 GB");
+			return builder.build();
+		}
+		ByteBuffer region = regions[circuitRegion[k]];
+		int position = (int)(circuitBegin[k] - regionBegin[circuitRegion[k]]);
+		int end = (int)(circuitBegin[k + 1] - regionBegin[circuitRegion[k]]);
+		int lineNumber = circuitLine[k];
+		while(position < end){
+			int lineBegin = position;
+			byte b = 0;
+			while(position < end && (b = region.get(position)) != '\n' && b != '\r')
+				position++;
+			builder.addLine(region, lineBegin, position, lineNumber++);
+			if(position < end){
+				position++;
+				if(b == '\r' && position < end && region.get(position) == '\n')
+					position++;
+			}
+		}
+		return builder.build();
+	}
+
+	@Override
+	public ParsedCircuit next(){
+		if(nextCircuit >= numOfCircuit)
+			return null;
+		return parse(nextCircuit++);
+	}
+
+	@Override
+	public void close() throws IOException {
+		MappedByteBuffer[] mapped = regions;
+		regions = null;
+		try{
+			if(mapped != null)
+				for(MappedByteBuffer region: mapped)
+					DirectBufferPool.free(region);		//unmap now, not on the next GC, so the file isn't held (or locked on Windows) meanwhile
+		}finally{
+			file.close();
+		}
+	}
+}
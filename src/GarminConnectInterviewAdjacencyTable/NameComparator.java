@@ -0,0 +1,9 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.Comparator;
+
+class NameComparator implements Comparator<Vertex> {
+	    @Override
+	    public int compare(Vertex a, Vertex b) {
+	        return a.name.compareToIgnoreCase(b.name);
+	    }
+	}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.Arrays;
+
+/***
+ * 
+ * A Netlist instance is a compact, struct-of-arrays representation of a circuit.
+ * Nodes 0 ~ numOfInput-1 are input pins x1 ~ xNI, and node numOfInput+g-1 is logic gate g.
+ * Edges are stored in compressed sparse row (CSR) form: the fan-in nodes of node n are
+ * fanInIndex[fanInOffset[n]] ~ fanInIndex[fanInOffset[n+1]-1], in the order they are listed in the circuit,
+ * and the same holds for fanOutOffset and fanOutIndex.
+ * Compared with an Integer[(NI+NG)][(NI+NG)] adjacency table, it takes O(NI + NG + # of edges) ints,
+ * and looking up edges of a node costs O(degree) instead of a scan of a whole row or column.
+ * @param  numOfInput:  # of input pins
+ *         numOfGate:   # of logic gates
+ *         numOfNode:   numOfInput + numOfGate
+ *         types:       types[n] is the type of node n (1:AND gate, 2:OR gate, 3:NOT gate, -1:input pin or gate never assigned)
+ * @method 
+ *         parse(String):  parse a circuit, return null if it breaks any format, linkage or size restriction
+ *         inDegree(n):	   # of incoming edges of node n
+ *         outDegree(n):   # of outgoing edges of node n
+ *         format():       the circuit in input file format again, eg: for the original engines which parse strings
+ */
+class Netlist {
+	public final int numOfInput;
+	public final int numOfGate;
+	public final int numOfNode;
+	public final int[] types;
+	public final int[] fanInOffset;
+	public final int[] fanInIndex;
+	public final int[] fanOutOffset;
+	public final int[] fanOutIndex;
+
+	public Netlist(int numOfInput, int numOfGate, int[] types, int[] fanInOffset, int[] fanInIndex){
+		this.numOfInput = numOfInput;
+		this.numOfGate = numOfGate;
+		this.numOfNode = numOfInput + numOfGate;
+		this.types = types;
+		this.fanInOffset = fanInOffset;
+		this.fanInIndex = fanInIndex;
+	//build fan-out lists from fan-in lists: count, prefix sum, then fill
+		this.fanOutOffset = new int[numOfNode + 1];
+		this.fanOutIndex = new int[fanInIndex.length];
+		for(int from: fanInIndex)
+			fanOutOffset[from + 1]++;
+		for(int n = 0; n < numOfNode; ++n)
+			fanOutOffset[n + 1] += fanOutOffset[n];
+		int[] next = new int[numOfNode];
+		System.arraycopy(fanOutOffset, 0, next, 0, numOfNode);
+		for(int to = 0; to < numOfNode; ++to){
+			for(int e = fanInOffset[to]; e < fanInOffset[to + 1]; ++e)
+				fanOutIndex[next[fanInIndex[e]]++] = to;
+		}
+	}
+
+	public int inDegree(int n){return fanInOffset[n + 1] - fanInOffset[n];}
+
+	public int outDegree(int n){return fanOutOffset[n + 1] - fanOutOffset[n];}
+
+	/***
+	 * Format the netlist as a circuit of the input file, a wire listed twice was dropped by parse() and is listed once.
+	 * A gate never assigned gets a line with only the ending 0, which leaves it untyped and unconnected, like a missing line.
+	 * @return eg: "3\n3\n1 -1 2 3 0\n3 -2 0\n2 2 -3 0"
+	 */
+	public String format(){
+		StringBuilder circuit = new StringBuilder();
+		circuit.append(numOfInput).append('\n').append(numOfGate);
+		for(int n = numOfInput; n < numOfNode; ++n){
+			circuit.append('\n');
+			if(types[n] >= 0)
+				circuit.append(types[n]).append(' ');
+			for(int e = fanInOffset[n]; e < fanInOffset[n + 1]; ++e){
+				int from = fanInIndex[e];
+				circuit.append(from < numOfInput ? -(from + 1) : from - numOfInput + 1).append(' ');
+			}
+			circuit.append('0');
+		}
+		return circuit.toString();
+	}
+
+	/***
+	 * ALGORITHM - Parse String circuit line by line, word by word, with the same restrictions as MainSimulator.constructDAGandAdjacencyTable.
+	 * 			   A wire listed twice in the same gate is kept only once, just like a 1 in the adjacency table.
+	 * @param circuit: 	eg:
+	 * 						3
+	 *						3
+	 *						1 -1 2 3 0
+	 *						3 -2 0
+	 *						2 2 -3 0
+	 * @return netlist, or null if 0 < NI <= 16, 0 < NG <= 1000, gate type or link assignment index is violated
+	 */
+	public static Netlist parse(String circuit){
+		try{
+			String[] docSplit = circuit.split("\n");
+			int numOfInput = Integer.valueOf(docSplit[0]);
+			if(numOfInput <= 0 || numOfInput > 16)		//NI should be larger than 0 and no more than 16.
+				return null;
+			int numOfGate = Integer.valueOf(docSplit[1]);
+			if(numOfGate <= 0 || numOfGate > 1000)		//NG should be larger than 0 and no more than 1000.
+				return null;
+			int numOfNode = numOfInput + numOfGate;
+			int[] types = new int[numOfNode];
+			Arrays.fill(types, -1);
+			int[] fanInOffset = new int[numOfNode + 1];
+			int[] fanInIndex = new int[16];
+			int[] listedBy = new int[numOfNode];		//listedBy[m] = gate node which m is lastly listed in, to drop duplicated wires
+			Arrays.fill(listedBy, -1);
+			int numOfEdge = 0;
+			for(int i = 2; i < docSplit.length; ++i){		//for each gate line in circuit doc
+				int gate = numOfInput + (i - 2);
+				String[] lineSplit = docSplit[i].split(" ");
+				for(int j = 0; j < lineSplit.length-1; ++j){  //for each word in line except the ending 0
+					int word = Integer.valueOf(lineSplit[j]);
+					if(j == 0){ 	//set gate type(1:AND, 2:OR, 3:NOT)
+						if(word < 0 || word > 3 || gate >= numOfNode)	//more gate lines than NG
+							return null;
+						types[gate] = word;
+					}else{
+						if((-word) > numOfInput || word > numOfGate || word == 0)	//in case that link assignment index exceeds the number of gates or input pins
+							return null;
+						int from = (word < 0) ? (-word-1) : (word-1+numOfInput);	//eg: -1 means input pin 1, 2 means gate 2
+						if(listedBy[from] == gate)
+							continue;
+						listedBy[from] = gate;
+						if(numOfEdge == fanInIndex.length)
+							fanInIndex = Arrays.copyOf(fanInIndex, numOfEdge * 2);
+						fanInIndex[numOfEdge++] = from;
+					}
+				}//for each word in line
+				if(gate < numOfNode)
+					fanInOffset[gate + 1] = numOfEdge;
+			}//for each line in doc
+			for(int n = 1; n <= numOfNode; ++n)		//nodes without a line have no fan-in
+				fanInOffset[n] = Math.max(fanInOffset[n], fanInOffset[n - 1]);
+			return new Netlist(numOfInput, numOfGate, types, fanInOffset, Arrays.copyOf(fanInIndex, numOfEdge));
+		}catch(NumberFormatException e){
+			return null;
+		}catch(IndexOutOfBoundsException e){
+			return null;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/***
+ * 
+ * Rewrites a compiled circuit into an equivalent and smaller one before simulation, every gate dropped is saved on each of 2^NI rows.
+ * Gates are rebuilt in topological order as literals of a new, hash-consed graph (literal = node * 2 + inverted, 0/1 are constants):
+ * 		- NOT gates:            become inverted literals, so double inversions cancel out
+ * 		- constant propagation: AND/OR gates with both x and NOT x, or with a constant fan-in, are folded
+ * 		- buffers:              AND/OR gates left with one fan-in are replaced by it
+ * 		- structural hashing:   gates with the same type and the same (sorted) fan-in become one node
+ * 		- dead-gate elimination: only nodes reachable from output pins are kept
+ * Output pins keep their identity and order: output k of the optimized schedule is the same function as output k of the original,
+ * it may be a merged gate, an input pin, or a materialized NOT/constant node.
+ * @method
+ *         optimize(schedule):  return the optimized schedule
+ */
+class NetlistOptimizer {
+	static final int AND = 1, OR = 2, NOT = 3;
+	static final int FALSE = 0, TRUE = 1;	//constant literals
+
+	private int numOfNode = 1;				//node 0 is the constant, nodes 1 ~ NI are input pins
+	private int[] types = new int[64];
+	private int[][] fanIns = new int[64][];	//node ids, sorted
+	private final HashMap<Key, Integer> unique = new HashMap<Key, Integer>();
+
+	/***
+	 * Hash key of a node: type and fan-in node ids
+	 */
+	static class Key {
+		final int type;
+		final int[] fanIn;
+		Key(int type, int[] fanIn){
+			this.type = type;
+			this.fanIn = fanIn;
+		}
+		@Override
+		public int hashCode(){return 31 * type + Arrays.hashCode(fanIn);}
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Key && ((Key)o).type == type && Arrays.equals(((Key)o).fanIn, fanIn);
+		}
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Map input pin i to literal of node i+1, then for each gate in schedule order, compute its literal from the literals of its fan-in
+	 * Step2: - Materialize the literal of each output pin as a node: inverted literals get a NOT node, constants get x1 AND NOT x1 (or its NOT)
+	 * Step3: - Keep nodes reachable from output nodes, renumber them (they were created in topological order), and build the new netlist
+	 * @param  schedule: compiled circuit, null is passed through
+	 * @return equivalent schedule with the same output pins in the same order
+	 */
+	public static LevelizedSchedule optimize(LevelizedSchedule schedule){
+		if(schedule == null) return null;
+		return new NetlistOptimizer().rebuild(schedule);
+	}
+
+	private LevelizedSchedule rebuild(LevelizedSchedule schedule){
+		int numOfInput = schedule.numOfInput;
+	//Step1: literals of all nodes
+		int[] literals = new int[schedule.numOfNode];
+		for(int i = 0; i < numOfInput; ++i)
+			literals[i] = 2 * newNode(-1, null);
+		int[] fanIn = new int[schedule.numOfNode];
+		for(int n: schedule.order){
+			int first = schedule.fanInOffset[n], last = schedule.fanInOffset[n + 1];
+			if(schedule.types[n] == NOT){	//the last wire overrides the former ones
+				literals[n] = literals[schedule.fanInIndex[last - 1]] ^ 1;
+				continue;
+			}
+			for(int e = first; e < last; ++e)
+				fanIn[e - first] = literals[schedule.fanInIndex[e]];
+			literals[n] = gate(schedule.types[n] == OR ? OR : AND, fanIn, last - first);
+		}
+	//Step2: output nodes
+		int[] outputs = new int[schedule.outputPins.length];
+		for(int k = 0; k < outputs.length; ++k)
+			outputs[k] = materialize(literals[schedule.outputPins[k]]);
+	//Step3: reachable nodes, renumbered
+		boolean[] reachable = new boolean[numOfNode];
+		for(int node: outputs)
+			reachable[node] = true;
+		for(int node = numOfNode - 1; node > numOfInput; --node){
+			if(reachable[node])
+				for(int from: fanIns[node])
+					reachable[from] = true;
+		}
+		int[] index = new int[numOfNode];
+		int numOfGate = 0;
+		for(int node = numOfInput + 1; node < numOfNode; ++node)
+			if(reachable[node])
+				index[node] = numOfInput + numOfGate++;
+		for(int i = 1; i <= numOfInput; ++i)
+			index[i] = i - 1;
+		int[] newTypes = new int[numOfInput + numOfGate];
+		int[] fanInOffset = new int[numOfInput + numOfGate + 1];
+		int numOfEdge = 0;
+		for(int node = numOfInput + 1; node < numOfNode; ++node)
+			if(reachable[node])
+				numOfEdge += fanIns[node].length;
+		int[] fanInIndex = new int[numOfEdge];
+		Arrays.fill(newTypes, 0, numOfInput, -1);
+		numOfEdge = 0;
+		for(int node = numOfInput + 1; node < numOfNode; ++node){
+			if(!reachable[node]) continue;
+			int n = index[node];
+			newTypes[n] = types[node];
+			for(int from: fanIns[node])
+				fanInIndex[numOfEdge++] = index[from];
+			fanInOffset[n + 1] = numOfEdge;
+		}
+		int[] outputPins = new int[outputs.length];
+		for(int k = 0; k < outputs.length; ++k)
+			outputPins[k] = index[outputs[k]];
+		LevelizedSchedule optimized = LevelizedSchedule.compile(new Netlist(numOfInput, numOfGate, newTypes, fanInOffset, fanInIndex));
+		return optimized.withOutputPins(outputPins);
+	}
+
+	/***
+	 * Literal of an AND/OR gate, after folding constants, complementary and duplicated fan-ins, and buffers
+	 * @param type:     AND or OR
+	 * @param literals: literals[0 ~ length-1] of fan-in, reordered in place
+	 */
+	private int gate(int type, int[] literals, int length){
+		int absorbing = (type == AND) ? FALSE : TRUE;	//x AND 0 = 0, x OR 1 = 1
+		int neutral = absorbing ^ 1;
+		Arrays.sort(literals, 0, length);
+		int size = 0;
+		for(int e = 0; e < length; ++e){
+			int literal = literals[e];
+			if(literal == absorbing) return absorbing;
+			if(literal == neutral) continue;
+			if(size > 0 && literals[size - 1] == literal) continue;
+			if(size > 0 && literals[size - 1] == (literal ^ 1)) return absorbing;	//x AND NOT x = 0, x OR NOT x = 1
+			literals[size++] = literal;
+		}
+		if(size == 0) return neutral;
+		if(size == 1) return literals[0];	//buffer
+		int[] fanIn = new int[size];
+		for(int e = 0; e < size; ++e)
+			fanIn[e] = materialize(literals[e]);
+		Arrays.sort(fanIn);
+		return 2 * node(type, fanIn);
+	}
+
+	/***
+	 * Node computing a literal
+	 */
+	private int materialize(int literal){
+		if(literal == FALSE)		//x1 AND NOT x1
+			return node(AND, new int[]{1, node(NOT, new int[]{1})});
+		if(literal == TRUE)
+			return node(NOT, new int[]{materialize(FALSE)});
+		if((literal & 1) == 0)
+			return literal >>> 1;
+		return node(NOT, new int[]{literal >>> 1});
+	}
+
+	/***
+	 * Hash-consed node of type and sorted fan-in
+	 */
+	private int node(int type, int[] fanIn){
+		Key key = new Key(type, fanIn);
+		Integer node = unique.get(key);
+		if(node == null){
+			node = newNode(type, fanIn);
+			unique.put(key, node);
+		}
+		return node;
+	}
+
+	private int newNode(int type, int[] fanIn){
+		if(numOfNode == types.length){
+			types = Arrays.copyOf(types, numOfNode * 2);
+			fanIns = Arrays.copyOf(fanIns, numOfNode * 2);
+		}
+		types[numOfNode] = type;
+		fanIns[numOfNode] = (fanIn == null) ? new int[0] : fanIn;
+		return numOfNode++;
+	}
+}
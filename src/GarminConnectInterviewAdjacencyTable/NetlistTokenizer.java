@@ -0,0 +1,279 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/***
+ * 
+ * Single-pass tokenizer which reads circuits from a byte stream and emits one parsed netlist at a time.
+ * Bytes are scanned in a reusable buffer and integers are parsed directly from them, no String is created for lines or words,
+ * so the whole file is parsed in linear time and memory only holds the circuit being parsed.
+ * The rules are the same as MainSimulator.readFile + Netlist.parse:
+ * 		- A circuit ends at a line containing " " which is followed by a line without " ".
+ * 		  Lines after the last such boundary, and empty lines at the end of file, are ignored.
+ * 		- Line 1 of a circuit is NI, if it isn't a number, it's a FORMAT_ERROR.
+ * 		- Line 2 is NG, and each following line is a gate: type, wires, and an ending word which is not checked.
+ * 		  Words are separated by exactly one " ", any other violation is a LINKAGE_ERROR.
+ * @method 
+ *         next():	 return next circuit, or null at the end of file
+ *         close():  close the stream
+ */
+class NetlistTokenizer implements CircuitSource {
+	private final InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int position = 0, limit = 0;
+	private boolean pendingCR = false;		//last byte was '\r', a following '\n' belongs to the same line ending
+
+	private byte[] line = new byte[256];	//current line without line ending
+	private ByteBuffer lineBuffer = ByteBuffer.wrap(line);
+	private int lineLength = 0;
+	private int lineNumber = 0;				//line number of current line in file, starting from 1
+	private int numOfEmptyLine = 0;			//empty lines read before current line, not yet passed to the builder
+	private boolean held = false;			//current line is read but not yet passed to the builder
+
+	private boolean previousHasSpace = false;
+	private int numOfCircuit = 0;
+	private Builder current = null;
+
+	public NetlistTokenizer(InputStream in){
+		this.in = in;
+	}
+
+	public NetlistTokenizer(String fileName) throws IOException {
+		this(new FileInputStream(fileName));
+	}
+
+	/***
+	 * Return next circuit in the stream
+	 * @return parsed circuit, or null at the end of stream
+	 * @throws IOException
+	 */
+	@Override
+	public ParsedCircuit next() throws IOException {
+		int length;
+		while((length = nextLine()) >= 0){
+			int number = (length == 0 && held) ? lineNumber - numOfEmptyLine - 1 : lineNumber;
+			boolean hasSpace = (length > 0) && indexOfSpace(length) >= 0;
+			boolean boundary = previousHasSpace && !hasSpace;
+			previousHasSpace = hasSpace;
+			ParsedCircuit done = null;
+			if(boundary || current == null){
+				if(current != null)
+					done = current.build();
+				current = new Builder(numOfCircuit++);
+			}
+			current.addLine(lineBuffer, 0, length, number);
+			if(done != null)
+				return done;
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/***
+	 * Return length of next line to be passed to the builder, 0 for a replayed empty line, -1 at the end of stream
+	 */
+	private int nextLine() throws IOException {
+		if(held){
+			if(numOfEmptyLine > 0){
+				numOfEmptyLine--;
+				return 0;
+			}
+			held = false;
+			return lineLength;
+		}
+		while(readLine()){
+			if(lineLength == 0){
+				numOfEmptyLine++;
+				continue;
+			}
+			held = true;
+			return nextLine();
+		}
+		return -1;		//empty lines at the end of file are dropped
+	}
+
+	/***
+	 * Read next line into line[], a line ends with "\n", "\r" or "\r\n" just like BufferedReader.readLine
+	 * @return false at the end of stream
+	 */
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		while(true){
+			if(position == limit){
+				limit = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if(limit <= 0){
+					limit = 0;
+					if(lineLength == 0)
+						return false;
+					lineNumber++;
+					return true;
+				}
+			}
+			byte b = buffer[position++];
+			if(pendingCR){
+				pendingCR = false;
+				if(b == '\n')
+					continue;
+			}
+			if(b == '\n' || b == '\r'){
+				pendingCR = (b == '\r');
+				lineNumber++;
+				return true;
+			}
+			if(lineLength == line.length){
+				line = Arrays.copyOf(line, lineLength * 2);
+				lineBuffer = ByteBuffer.wrap(line);
+			}
+			line[lineLength++] = b;
+		}
+	}
+
+	private int indexOfSpace(int length){
+		for(int i = 0; i < length; ++i)
+			if(line[i] == ' ')
+				return i;
+		return -1;
+	}
+
+	/***
+	 * Parse bytes[begin, end) as a decimal int, accepting the same words as Integer.valueOf
+	 * @param  bytes: read by absolute index, so a heap buffer and a mapped file are parsed alike
+	 * @return value, or null if the word isn't a number or overflows
+	 */
+	static Integer parseInt(ByteBuffer bytes, int begin, int end){
+		if(begin >= end) return null;
+		boolean negative = bytes.get(begin) == '-';
+		if(negative || bytes.get(begin) == '+')
+			begin++;
+		if(begin >= end) return null;
+		long value = 0;
+		for(int i = begin; i < end; ++i){
+			int digit = bytes.get(i) - '0';
+			if(digit < 0 || digit > 9) return null;
+			value = value * 10 + digit;
+			if(value > (long)Integer.MAX_VALUE + 1) return null;
+		}
+		if(negative) value = -value;
+		if(value > Integer.MAX_VALUE) return null;
+		return Integer.valueOf((int)value);
+	}
+
+	/***
+	 * Incrementally builds the netlist of one circuit, line by line.
+	 * A line is line[begin, end) without line ending, read by absolute index, eg: a slice of a mapped file (see MappedNetlistReader).
+	 */
+	static class Builder {
+		final int circuitIndx;
+		int status = ParsedCircuit.OK;
+		String error = null;
+		int numOfLine = 0;
+		int numOfInput, numOfGate, numOfNode;
+		int[] types, fanInOffset, fanInIndex, listedBy;
+		int numOfEdge = 0;
+
+		Builder(int circuitIndx){
+			this.circuitIndx = circuitIndx;
+		}
+
+		void fail(int status, int lineNumber, int column, String reason){
+			if(this.status != ParsedCircuit.OK) return;
+			this.status = status;
+			this.error = "line " + lineNumber + ", column " + column + ": " + reason;
+		}
+
+		void addLine(ByteBuffer line, int begin, int end, int lineNumber){
+			int i = numOfLine++;
+			if(status != ParsedCircuit.OK)
+				return;
+			if(i == 0 || i == 1){	//NI or NG, the whole line is a number
+				Integer value = parseInt(line, begin, end);
+				if(value == null){
+					fail(i == 0 ? ParsedCircuit.FORMAT_ERROR : ParsedCircuit.LINKAGE_ERROR, lineNumber, 1, (i == 0 ? "NI" : "NG") + " is not a number");
+					return;
+				}
+				if(i == 0){
+					numOfInput = value;
+					if(numOfInput <= 0 || numOfInput > 16)		//NI should be larger than 0 and no more than 16.
+						fail(ParsedCircuit.LINKAGE_ERROR, lineNumber, 1, "NI should be 1 ~ 16");
+				}else{
+					numOfGate = value;
+					if(numOfGate <= 0 || numOfGate > 1000){		//NG should be larger than 0 and no more than 1000.
+						fail(ParsedCircuit.LINKAGE_ERROR, lineNumber, 1, "NG should be 1 ~ 1000");
+						return;
+					}
+					numOfNode = numOfInput + numOfGate;
+					types = new int[numOfNode];
+					Arrays.fill(types, -1);
+					fanInOffset = new int[numOfNode + 1];
+					fanInIndex = new int[16];
+					listedBy = new int[numOfNode];
+					Arrays.fill(listedBy, -1);
+				}
+				return;
+			}
+			int gate = numOfInput + (i - 2);
+			int lineBegin = begin;
+			while(end > lineBegin && line.get(end - 1) == ' ')		//trailing spaces don't make words
+				end--;
+			int lastWord = end;										//the ending word is not checked
+			while(lastWord > lineBegin && line.get(lastWord - 1) != ' ')
+				lastWord--;
+			for(int j = 0; begin < lastWord; ++j){	//for each word in line except the ending one
+				int wordEnd = begin;
+				while(line.get(wordEnd) != ' ')
+					wordEnd++;
+				Integer word = parseInt(line, begin, wordEnd);
+				int column = begin - lineBegin + 1;
+				if(word == null){
+					fail(ParsedCircuit.LINKAGE_ERROR, lineNumber, column, "word is not a number");
+					return;
+				}
+				if(j == 0){		//set gate type(1:AND, 2:OR, 3:NOT)
+					if(word < 0 || word > 3){
+						fail(ParsedCircuit.LINKAGE_ERROR, lineNumber, column, "gate type should be 0 ~ 3");
+						return;
+					}
+					if(gate >= numOfNode){
+						fail(ParsedCircuit.LINKAGE_ERROR, lineNumber, column, "more gate lines than NG");
+						return;
+					}
+					types[gate] = word;
+				}else{
+					if((-word) > numOfInput || word > numOfGate || word == 0){	//in case that link assignment index exceeds the number of gates or input pins
+						fail(ParsedCircuit.LINKAGE_ERROR, lineNumber, column, "link assignment index should be -" + numOfInput + " ~ -1 or 1 ~ " + numOfGate);
+						return;
+					}
+					int from = (word < 0) ? (-word-1) : (word-1+numOfInput);
+					if(listedBy[from] != gate){		//a wire listed twice is kept only once
+						listedBy[from] = gate;
+						if(numOfEdge == fanInIndex.length)
+							fanInIndex = Arrays.copyOf(fanInIndex, numOfEdge * 2);
+						fanInIndex[numOfEdge++] = from;
+					}
+				}
+				begin = wordEnd + 1;
+			}
+			if(gate < numOfNode)
+				fanInOffset[gate + 1] = numOfEdge;
+		}
+
+		ParsedCircuit build(){
+			if(status == ParsedCircuit.OK && numOfLine < 2)
+				fail(ParsedCircuit.LINKAGE_ERROR, 0, 0, "NG is missing");
+			if(status != ParsedCircuit.OK)
+				return new ParsedCircuit(circuitIndx, status, null, error);
+			for(int n = 1; n <= numOfNode; ++n)		//nodes without a line have no fan-in
+				fanInOffset[n] = Math.max(fanInOffset[n], fanInOffset[n - 1]);
+			Netlist netlist = new Netlist(numOfInput, numOfGate, types, fanInOffset, Arrays.copyOf(fanInIndex, numOfEdge));
+			return new ParsedCircuit(circuitIndx, ParsedCircuit.OK, netlist, null);
+		}
+	}
+}
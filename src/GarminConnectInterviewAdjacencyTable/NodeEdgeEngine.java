@@ -0,0 +1,57 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
+
+/***
+ *
+ * The original node/edge algorithm as a SimulationEngine, on Vertex and Edge objects.
+ * The circuit is formatted back into a string and compiled once by TopologicalSort.compile,
+ * then every row of truth table is evaluated by TopologicalSort.evaluate.
+ * Nodes are named i1 ~ iNI and g1 ~ gNG, so node i k is node k-1 of the schedule and node g k is node NI+k-1.
+ * A gate of type 0 passes its first input bit through instead of behaving as AND, so it only agrees with the other engines on AND/OR/NOT gates.
+ */
+class NodeEdgeEngine implements SimulationEngine {
+	public String name(){return "nodeEdge";}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Compile the graph once, and index its nodes the way the schedule does
+	 * Step2: - For each row in truth table:
+	 * 				- Evaluate the graph in topological order
+	 * 				- Copy bits of schedule.outputPins into the truth table
+	 * @return truth table, or null if the legacy parser rejects the circuit
+	 */
+	public TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics){
+	//Step1: compile
+		ArrayList<Vertex> L = TopologicalSort.compile(schedule.netlist.format());
+		if(L == null) return null;
+		int numOfInput = schedule.numOfInput;
+		Vertex[] nodes = new Vertex[schedule.numOfNode];
+		for(Vertex n: L){
+			int k = Integer.valueOf(n.name.substring(1));
+			nodes[n.name.charAt(0) == 'i' ? k - 1 : numOfInput + k - 1] = n;
+		}
+	//Step2: evaluate per row
+		TruthTable table = new TruthTable(numOfInput, schedule.outputPins.length);
+		Boolean[] row = new Boolean[numOfInput];
+		long[] words = new long[schedule.outputPins.length];
+		for(int r = 0; r < table.numOfRow; ++r){
+			for(int i = 0; i < numOfInput; ++i)
+				row[i] = table.inputBit(r, i);
+			TopologicalSort.evaluate(row, L, numOfInput);
+			for(int k = 0; k < words.length; ++k){
+				if(nodes[schedule.outputPins[k]].outBit)
+					words[k] |= 1L << (r & 63);
+			}
+			if((r & 63) == 63 || r == table.numOfRow - 1){
+				for(int k = 0; k < words.length; ++k){
+					table.setWord(k, r >>> 6, words[k]);
+					words[k] = 0;
+				}
+			}
+		}
+		return table;
+	}
+}
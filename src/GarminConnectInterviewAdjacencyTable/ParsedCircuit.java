@@ -0,0 +1,27 @@
+package GarminConnectInterviewAdjacencyTable;
+
+/***
+ * 
+ * A ParsedCircuit instance is one circuit emitted by NetlistTokenizer
+ * @param  circuitIndx: index of the circuit in the input file, starting from 0
+ *         status:      OK, FORMAT_ERROR (NI is not a number) or LINKAGE_ERROR (any other format, linkage or size error)
+ *         netlist:     parsed netlist, null unless status is OK
+ *         error:       position and reason of the error, eg: "line 7, column 3: link assignment index exceeds NG"
+ */
+class ParsedCircuit {
+	public static final int OK = 0;
+	public static final int FORMAT_ERROR = 1;
+	public static final int LINKAGE_ERROR = 2;
+
+	public final int circuitIndx;
+	public final int status;
+	public final Netlist netlist;
+	public final String error;
+
+	public ParsedCircuit(int circuitIndx, int status, Netlist netlist, String error){
+		this.circuitIndx = circuitIndx;
+		this.status = status;
+		this.netlist = netlist;
+		this.error = error;
+	}
+}
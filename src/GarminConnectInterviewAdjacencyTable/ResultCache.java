@@ -0,0 +1,235 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * Content-addressed cache of truth tables, so a circuit seen before (in this file, another file or an earlier run) isn't simulated again.
+ * The key is a canonical SHA-256 hash of the netlist: NI, NG, gate types and fan-in lists, where the fan-in list of an AND/OR gate is sorted
+ * (its order can't change anything) and a NOT gate keeps its deciding last wire apart from the others.
+ * Only truth tables are cached, a circuit with a cycle or undefined gate is never stored, and as the key covers every wire it can't hit either.
+ * 		memory tier: LRU of truth tables, bounded by the total size of their words
+ * 		disk tier:   optional directory, one file per key, written through on every put and promoted into memory on a hit
+ * All methods are synchronized, the cache is shared by the workers of BatchPipeline, except that put() writes the disk tier outside the lock.
+ * The memory tier holds a reference of each cached table (see TruthTable.retain), released when the table is evicted,
+ * and get() hands out a reference of its own, which the caller releases like a table it simulated.
+ */
+public class ResultCache {
+	private final long maxBytes;
+	private final File directory;
+	private long bytes = 0;
+	private final LinkedHashMap<String, TruthTable> memory = new LinkedHashMap<String, TruthTable>(16, 0.75f, true);	//access order
+	private long hits = 0, diskHits = 0, misses = 0, evictions = 0;
+
+	/***
+	 * @param maxBytes:  bound of the memory tier, in bytes of truth table words
+	 * @param directory: directory of the disk tier, or null for memory only, created if missing
+	 */
+	public ResultCache(long maxBytes, File directory){
+		this.maxBytes = maxBytes;
+		this.directory = directory;
+		if(directory != null)
+			directory.mkdirs();
+	}
+
+	/***
+	 * Canonical hash of a netlist, as 64 hex digits
+	 */
+	public static String key(Netlist netlist){
+		MessageDigest digest;
+		try{
+			digest = MessageDigest.getInstance("SHA-256");
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);		//every JVM has SHA-256
+		}
+		int numOfWord = 2 + netlist.numOfGate * 2 + netlist.fanInIndex.length;
+		int[] canonical = new int[numOfWord];
+		int k = 0;
+		canonical[k++] = netlist.numOfInput;
+		canonical[k++] = netlist.numOfGate;
+		for(int n = netlist.numOfInput; n < netlist.numOfNode; ++n){
+			int first = netlist.fanInOffset[n], last = netlist.fanInOffset[n + 1];
+			canonical[k++] = netlist.types[n];
+			canonical[k++] = last - first;
+			if(netlist.types[n] == 3 && last > first){		//NOT gate: deciding wire first, the rest only matter for linkage
+				canonical[k++] = netlist.fanInIndex[last - 1];
+				System.arraycopy(netlist.fanInIndex, first, canonical, k, last - 1 - first);
+				Arrays.sort(canonical, k, k + last - 1 - first);
+				k += last - 1 - first;
+			}else{
+				System.arraycopy(netlist.fanInIndex, first, canonical, k, last - first);
+				Arrays.sort(canonical, k, k + last - first);
+				k += last - first;
+			}
+		}
+		byte[] bytes = new byte[4 * numOfWord];
+		for(int i = 0; i < numOfWord; ++i){
+			bytes[4 * i] = (byte)(canonical[i] >>> 24);
+			bytes[4 * i + 1] = (byte)(canonical[i] >>> 16);
+			bytes[4 * i + 2] = (byte)(canonical[i] >>> 8);
+			bytes[4 * i + 3] = (byte)canonical[i];
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for(byte b: digest.digest(bytes))
+			hex.append(Character.forDigit((b >>> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+		return hex.toString();
+	}
+
+	/***
+	 * Look up a truth table, memory tier first, then disk tier
+	 * @return cached truth table, retained for the caller, or null on a miss
+	 */
+	public synchronized TruthTable get(String key){
+		TruthTable table = memory.get(key);
+		if(table != null){
+			hits++;
+			return table.retain();
+		}
+		if(directory != null){
+			table = read(new File(directory, key));
+			if(table != null){
+				diskHits++;
+				putInMemory(key, table.retain());		//one reference for the memory tier, one for the caller
+				return table;
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/***
+	 * Store a truth table in the memory tier, and write it through to the disk tier.
+	 * The disk write holds a reference of its own and runs outside the lock, so workers don't wait for each other's disk I/O.
+	 */
+	public void put(String key, TruthTable table){
+		synchronized(this){
+			putInMemory(key, table.retain());
+			if(directory == null)
+				return;
+			table.retain();		//the memory tier may evict it meanwhile
+		}
+		try{
+			write(new File(directory, key), table);
+		}finally{
+			table.release();
+		}
+	}
+
+	public synchronized long hits(){return hits;}
+
+	public synchronized long diskHits(){return diskHits;}
+
+	public synchronized long misses(){return misses;}
+
+	public synchronized long evictions(){return evictions;}
+
+	public synchronized int size(){return memory.size();}
+
+	public synchronized long bytes(){return bytes;}
+
+	@Override
+	public synchronized String toString(){
+		return "Result cache: " + hits + " hits, " + diskHits + " disk hits, " + misses + " misses, " + evictions + " evictions, "
+				+ memory.size() + " entries (" + bytes + " bytes) in memory";
+	}
+
+	static long sizeOf(TruthTable table){
+		return 8L * table.numOfOutput * table.numOfWord;
+	}
+
+	/***
+	 * Insert into the memory tier, then evict least recently used tables until it fits maxBytes.
+	 * A table larger than maxBytes isn't kept in memory at all.
+	 * @param table: its reference is owned by the memory tier from now on, and released on eviction
+	 */
+	private void putInMemory(String key, TruthTable table){
+		if(sizeOf(table) > maxBytes){		//it would only flush the whole LRU and then be evicted itself
+			table.release();
+			return;
+		}
+		TruthTable old = memory.put(key, table);
+		if(old != null){
+			bytes -= sizeOf(old);
+			old.release();
+		}
+		bytes += sizeOf(table);
+		Iterator<Map.Entry<String, TruthTable>> eldest = memory.entrySet().iterator();
+		while(bytes > maxBytes && eldest.hasNext()){
+			TruthTable evicted = eldest.next().getValue();
+			bytes -= sizeOf(evicted);
+			evicted.release();
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/***
+	 * File of disk tier: NI, # of outputs, then words of each output column. A missing or broken file is a miss.
+	 */
+	private static TruthTable read(File file){
+		if(!file.isFile())
+			return null;
+		TruthTable table = null;
+		try{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try{
+				int numOfInput = in.readInt(), numOfOutput = in.readInt();
+				if(numOfInput < 1 || numOfInput > 16 || numOfOutput < 0 || numOfOutput > 1000)
+					return null;
+				table = new TruthTable(numOfInput, numOfOutput);
+				for(int k = 0; k < table.numOfOutput; ++k)
+					for(int w = 0; w < table.numOfWord; ++w)
+						table.setWord(k, w, in.readLong());
+				return table;
+			}finally{
+				in.close();
+			}
+		}catch(IOException e){
+			if(table != null)
+				table.release();
+			return null;
+		}catch(RuntimeException e){
+			if(table != null)
+				table.release();
+			return null;
+		}
+	}
+
+	/***
+	 * Write to a temporary file then rename it, so a concurrent reader never sees half a file. Failures only cost a later miss.
+	 */
+	private static void write(File file, TruthTable table){
+		File temp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		try{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try{
+				out.writeInt(table.numOfInput);
+				out.writeInt(table.numOfOutput);
+				for(int k = 0; k < table.numOfOutput; ++k)
+					for(int w = 0; w < table.numOfWord; ++w)
+						out.writeLong(table.getWord(k, w));
+			}finally{
+				out.close();
+			}
+			if(!temp.renameTo(file)){
+				file.delete();
+				temp.renameTo(file);
+			}
+		}catch(IOException e){
+			System.out.println("Result cache: can't write " + file.getPath());
+		}finally{
+			temp.delete();
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Sharded multi-process mode of MainSimulator (--processes N, --listen PORT), so a batch is not bounded by the heap of one JVM.
+ * 		reader:       parses circuits by a CircuitSource and groups them into shards of --shard-size consecutive circuits
+ * 		connections:  one thread per ShardWorker, it sends a shard, waits for its truth tables, and takes the next one
+ * 		writer:       writes shards in input order by a CircuitWriter as soon as they are back (the caller thread)
+ * Workers are N local JVMs started by the coordinator, and/or processes on other machines started with --connect HOST:PORT.
+ * If a worker dies (connection closed, or no truth table within CIRCUIT_TIMEOUT_MILLIS), its shard goes back to the head of the queue
+ * and is re-assigned to another worker, a local worker process that exits is restarted up to MAX_RESTARTS times per process.
+ * At most IN_FLIGHT_PER_WORKER shards per local process (at least 4) are parsed but not written yet, so memory stays flat.
+ * --metrics and --jmx are rejected in this mode, --cache and --cache-dir are passed on to the local workers.
+ * eg:  java MainSimulator --processes 4 ../testcase ../output
+ * 		java MainSimulator --listen 7171 --processes 2 ../testcase ../output, and on other machines: java MainSimulator --connect host:7171
+ */
+public class ShardCoordinator {
+	static final int IN_FLIGHT_PER_WORKER = 4;
+	static final int MAX_RESTARTS = 3;
+	static final int CIRCUIT_TIMEOUT_MILLIS = 5 * 60 * 1000;	//workers send each truth table as it is done, so the timeout holds per circuit whatever the shard size
+
+	/***
+	 * Consecutive circuits sent to one worker at once, tables[c] is filled when the worker answers
+	 */
+	static class Shard {
+		final int shardId;
+		final ParsedCircuit[] circuits;		//null marks the end, shardId is then the # of shards
+		final TruthTable[] tables;
+		Shard(int shardId, ParsedCircuit[] circuits){
+			this.shardId = shardId;
+			this.circuits = circuits;
+			this.tables = (circuits == null) ? null : new TruthTable[circuits.length];
+		}
+
+		/***
+		 * Release the truth tables received and not written yet, eg: the shard is re-assigned or the run is aborted
+		 */
+		void release(){
+			if(tables == null)
+				return;
+			for(int c = 0; c < tables.length; ++c){
+				if(tables[c] != null){
+					tables[c].release();
+					tables[c] = null;
+				}
+			}
+		}
+	}
+
+	private final SimulatorOptions options;
+	private final CheckpointJournal journal;
+	private final LinkedBlockingDeque<Shard> queue = new LinkedBlockingDeque<Shard>();		//shards waiting for a worker
+	private final BlockingQueue<Shard> done = new LinkedBlockingQueue<Shard>();				//shards simulated
+	private final AtomicInteger connections = new AtomicInteger(), processes = new AtomicInteger();
+	private volatile boolean finished = false;
+
+	private ShardCoordinator(SimulatorOptions options, CheckpointJournal journal){
+		this.options = options;
+		this.journal = journal;
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Listen (loopback on an ephemeral port, or all interfaces on --listen PORT), start local worker processes
+	 * 			and a thread accepting workers
+	 * Step2: - Start the reader thread
+	 * Step3: - Writer loop: take simulated shards, buffer those arriving out of order, write every shard whose predecessors are all written
+	 * 			If no worker can come anymore (no connection, no local process and no --listen), give up
+	 * Step4: - Tell the workers to stop, and release the truth tables of shards not written
+	 * @param options: input and output file, # of local processes, port for remote workers, shard size, and options passed to workers
+	 * @param journal: checkpoint journal, committed as shards are written, or null if checkpoints are off
+	 * @throws IOException if the output can't be written or all workers are dead
+	 */
+	public static void run(SimulatorOptions options, CheckpointJournal journal) throws IOException {
+		new ShardCoordinator(options, journal).coordinate();
+	}
+
+	private void coordinate() throws IOException {
+	//Step1: server socket, local workers, acceptor
+		final ServerSocket server = (options.listenPort > 0) ? new ServerSocket(options.listenPort)
+				: new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		if(options.listenPort > 0)
+			System.out.println("Coordinator listening on " + server.getLocalSocketAddress());
+		for(int p = 0; p < options.processes; ++p)
+			startProcess(server.getLocalPort(), MAX_RESTARTS);
+		Thread acceptor = new Thread(new Runnable(){
+			public void run(){
+				try{
+					while(true)
+						startConnection(server.accept());
+				}catch(IOException e){}		//server closed
+			}
+		}, "shard-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	//Step2: reader
+		final Semaphore inFlight = new Semaphore(IN_FLIGHT_PER_WORKER * Math.max(options.processes, 4));
+		Thread reader = new Thread(new Runnable(){
+			public void run(){
+				int shardId = 0;
+				try{
+					CircuitSource tokenizer = MainSimulator.openSource(options, journal);
+					try{
+						ArrayList<ParsedCircuit> circuits = new ArrayList<ParsedCircuit>();
+						ParsedCircuit circuit;
+						do{
+							circuit = tokenizer.next();
+							if(circuit != null)
+								circuits.add(circuit);
+							if(circuits.size() == options.shardSize || (circuit == null && !circuits.isEmpty())){
+								inFlight.acquire();
+								queue.put(new Shard(shardId++, circuits.toArray(new ParsedCircuit[circuits.size()])));
+								circuits.clear();
+							}
+						}while(circuit != null);
+					}finally{
+						tokenizer.close();
+					}
+				}catch(IOException e){
+					System.out.println("File read error!");
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}finally{
+					done.add(new Shard(shardId, null));		//tell writer the number of shards
+				}
+			}
+		}, "shard-reader");
+		reader.setDaemon(true);
+		reader.start();
+	//Step3: ordered writer
+		CircuitWriter writer = MainSimulator.openWriter(options, journal);
+		HashMap<Integer, Shard> pending = new HashMap<Integer, Shard>();		//shards finished out of order, or being written
+		try{
+			int next = 0, numOfShard = Integer.MAX_VALUE;
+			while(next < numOfShard){
+				Shard shard = done.poll(1, TimeUnit.SECONDS);
+				if(shard == null){
+					if(connections.get() == 0 && processes.get() == 0 && options.listenPort == 0)
+						throw new IOException("All workers are dead");
+					continue;
+				}
+				if(shard.circuits == null){
+					numOfShard = shard.shardId;
+					continue;
+				}
+				pending.put(shard.shardId, shard);
+				Shard ready;
+				while((ready = pending.get(next)) != null){
+					for(int c = 0; c < ready.circuits.length; ++c){
+						TruthTable table = ready.tables[c];
+						ready.tables[c] = null;		//released by writeCircuit
+						MainSimulator.writeCircuit(writer, ready.circuits[c], table);
+					}
+					pending.remove(next);
+					inFlight.release();
+					next++;
+					if(journal != null)
+						journal.written(ready.circuits[ready.circuits.length - 1].circuitIndx + 1, writer);
+				}
+				writer.flush();
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}finally{
+	//Step4: stop workers, release the tables of shards not written, eg: all workers are dead
+			finished = true;
+			server.close();
+			for(Shard shard: pending.values())
+				shard.release();
+			Shard shard;
+			while((shard = done.poll()) != null)
+				shard.release();
+			writer.close();
+		}
+	}
+
+	/***
+	 * Start a local worker JVM with the same class path, connecting to the coordinator on loopback.
+	 * A watcher thread restarts it when it exits before the batch is finished, restarts times at most.
+	 */
+	private void startProcess(final int port, final int restarts) throws IOException {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(MainSimulator.class.getName());
+		command.add("--connect");
+		command.add("127.0.0.1:" + port);
+		command.add("--engine");
+		command.add(options.engine.name());
+		command.add("--threads");
+		command.add(String.valueOf(options.threads));
+		if(options.optimize)
+			command.add("--optimize");
+		if(options.verbose)
+			command.add("--verbose");
+		if(options.cacheBytes > 0){
+			command.add("--cache");
+			command.add(String.valueOf(options.cacheBytes / 1048576L));
+		}
+		if(options.cacheDir != null){
+			command.add("--cache-dir");
+			command.add(options.cacheDir);
+		}
+		final Process process = new ProcessBuilder(command).inheritIO().start();
+		processes.incrementAndGet();
+		Thread watcher = new Thread(new Runnable(){
+			public void run(){
+				try{
+					int exit = process.waitFor();
+					if(!finished){
+						System.out.println("Worker process exited with " + exit + (restarts > 0 ? ", restarting it" : ""));
+						if(restarts > 0)
+							startProcess(port, restarts - 1);
+					}
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}catch(IOException e){
+					System.out.println("Can't restart worker process: " + e.getMessage());
+				}finally{
+					processes.decrementAndGet();
+				}
+			}
+		}, "shard-process-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	/***
+	 * ALGORITHM - One thread per worker connection:
+	 * 			   take a shard, send its circuits, read back their truth tables, pass the shard to the writer.
+	 * 			   If the connection fails, put the shard back to the head of the queue and drop the connection.
+	 * 			   When the batch is finished, send STOP.
+	 */
+	private void startConnection(final Socket socket){
+		connections.incrementAndGet();
+		Thread connection = new Thread(new Runnable(){
+			public void run(){
+				Shard shard = null;
+				try{
+					socket.setTcpNoDelay(true);
+					socket.setSoTimeout(CIRCUIT_TIMEOUT_MILLIS);
+					DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+					while(!finished){
+						shard = queue.poll(100, TimeUnit.MILLISECONDS);
+						if(shard == null)
+							continue;
+						send(out, shard);
+						if(in.readInt() != shard.shardId)
+							throw new IOException("Worker answered another shard");
+						for(int c = 0; c < shard.circuits.length; ++c){
+							if(shard.circuits[c].netlist != null)
+								shard.tables[c] = ShardWorker.readTable(in);
+						}
+						done.add(shard);
+						shard = null;
+					}
+					out.writeInt(ShardWorker.STOP);
+					out.flush();
+				}catch(IOException e){
+					if(shard != null){
+						System.out.println("Worker " + socket.getRemoteSocketAddress() + " lost, shard " + shard.shardId + " re-assigned");
+						shard.release();		//tables read before the connection failed
+						queue.addFirst(shard);
+					}
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}finally{
+					connections.decrementAndGet();
+					try{
+						socket.close();
+					}catch(IOException e){}
+				}
+			}
+		}, "shard-connection");
+		connection.setDaemon(true);
+		connection.start();
+	}
+
+	/***
+	 * Send the circuits of a shard which have a netlist
+	 */
+	private static void send(DataOutputStream out, Shard shard) throws IOException {
+		int numOfCircuit = 0;
+		for(ParsedCircuit circuit: shard.circuits){
+			if(circuit.netlist != null)
+				numOfCircuit++;
+		}
+		out.writeInt(shard.shardId);
+		out.writeInt(numOfCircuit);
+		for(ParsedCircuit circuit: shard.circuits){
+			if(circuit.netlist != null){
+				out.writeInt(circuit.circuitIndx);
+				ShardWorker.writeNetlist(out, circuit.netlist);
+			}
+		}
+		out.flush();
+	}
+}
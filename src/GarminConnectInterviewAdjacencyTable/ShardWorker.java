@@ -0,0 +1,148 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.concurrent.ForkJoinPool;
+
+/***
+ * Worker process of sharded mode (--connect HOST:PORT), see ShardCoordinator.
+ * It connects to the coordinator, then simulates shards until it is told to stop or the connection is closed,
+ * with its own heap, fork-join pool (--threads), ResultCache (--cache, --cache-dir) and engine (--engine, --optimize).
+ * Protocol, DataOutputStream over TCP, big-endian:
+ * 		coordinator -> worker:  int shardId (-1 = stop), int # of circuits, then per circuit: int circuitIndx and the netlist (writeNetlist)
+ * 		worker -> coordinator:  int shardId, then per circuit: the truth table (writeTable)
+ * Only circuits parsed without error are shipped, the coordinator writes the error messages of the others by itself.
+ * eg:  java GarminConnectInterviewAdjacencyTable.MainSimulator --connect 10.0.0.5:7171 --threads 8
+ */
+public class ShardWorker {
+	static final int STOP = -1;
+	static final int CONNECT_ATTEMPTS = 50;		//the coordinator may still be starting, retry every 100 ms
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Connect to the coordinator
+	 * Step2: - Loop: read a shard, simulate its circuits by MainSimulator.simulateCircuit, send their truth tables back
+	 * @param options: host and port of the coordinator, and how circuits are simulated
+	 * @throws IOException if the coordinator can't be reached
+	 */
+	public static void work(SimulatorOptions options) throws IOException {
+		ForkJoinPool pool = (options.threads > 1) ? new ForkJoinPool(options.threads) : null;
+		ResultCache cache = options.createCache();
+	//Step1: connect
+		Socket socket = null;
+		for(int attempt = 1; socket == null; ++attempt){
+			try{
+				socket = new Socket(options.coordinatorHost, options.coordinatorPort);
+			}catch(ConnectException e){
+				if(attempt == CONNECT_ATTEMPTS)
+					throw e;
+				try{
+					Thread.sleep(100);
+				}catch(InterruptedException ie){
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	//Step2: shard loop
+		try{
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while(true){
+				int shardId;
+				try{
+					shardId = in.readInt();
+				}catch(EOFException e){
+					break;		//coordinator is gone
+				}
+				if(shardId == STOP)
+					break;
+				int numOfCircuit = in.readInt();
+				out.writeInt(shardId);
+				for(int c = 0; c < numOfCircuit; ++c){
+					int circuitIndx = in.readInt();
+					ParsedCircuit circuit = new ParsedCircuit(circuitIndx, ParsedCircuit.OK, readNetlist(in), null);
+					TruthTable table = MainSimulator.simulateCircuit(circuit, pool, cache, options);
+					writeTable(out, table);
+					out.flush();		//as soon as it is done, so the coordinator's timeout counts per circuit, not per shard
+					if(table != null)
+						table.release();
+				}
+				out.flush();
+			}
+		}finally{
+			socket.close();
+			if(pool != null)
+				pool.shutdown();
+		}
+	}
+
+	/***
+	 * Netlist as NI, NG, types[NI+NG], fanInOffset[NI+NG+1], # of edges, fanInIndex[]
+	 */
+	static void writeNetlist(DataOutputStream out, Netlist netlist) throws IOException {
+		out.writeInt(netlist.numOfInput);
+		out.writeInt(netlist.numOfGate);
+		for(int type: netlist.types)
+			out.writeInt(type);
+		for(int offset: netlist.fanInOffset)
+			out.writeInt(offset);
+		out.writeInt(netlist.fanInIndex.length);
+		for(int from: netlist.fanInIndex)
+			out.writeInt(from);
+	}
+
+	static Netlist readNetlist(DataInputStream in) throws IOException {
+		int numOfInput = in.readInt(), numOfGate = in.readInt();
+		int numOfNode = numOfInput + numOfGate;
+		int[] types = new int[numOfNode];
+		for(int n = 0; n < numOfNode; ++n)
+			types[n] = in.readInt();
+		int[] fanInOffset = new int[numOfNode + 1];
+		for(int n = 0; n <= numOfNode; ++n)
+			fanInOffset[n] = in.readInt();
+		int[] fanInIndex = new int[in.readInt()];
+		for(int e = 0; e < fanInIndex.length; ++e)
+			fanInIndex[e] = in.readInt();
+		return new Netlist(numOfInput, numOfGate, types, fanInOffset, fanInIndex);
+	}
+
+	/***
+	 * Truth table as # of outputs (-1 = circuit can't be simulated), NI, then numOfWord longs per output
+	 */
+	static void writeTable(DataOutputStream out, TruthTable table) throws IOException {
+		if(table == null){
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(table.numOfOutput);
+		out.writeInt(table.numOfInput);
+		for(int k = 0; k < table.numOfOutput; ++k){
+			for(int w = 0; w < table.numOfWord; ++w)
+				out.writeLong(table.getWord(k, w));
+		}
+	}
+
+	static TruthTable readTable(DataInputStream in) throws IOException {
+		int numOfOutput = in.readInt();
+		if(numOfOutput < 0)
+			return null;
+		TruthTable table = new TruthTable(in.readInt(), numOfOutput);
+		try{
+			for(int k = 0; k < numOfOutput; ++k){
+				for(int w = 0; w < table.numOfWord; ++w)
+					table.setWord(k, w, in.readLong());
+			}
+		}catch(IOException e){
+			table.release();		//connection lost mid-table, the shard doesn't hold it yet so Shard.release() can't free it
+			throw e;
+		}
+		return table;
+	}
+}
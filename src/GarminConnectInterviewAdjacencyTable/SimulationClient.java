@@ -0,0 +1,88 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/***
+ * Client of SimulationServer: sends an input file and saves the streamed output file, same files as MainSimulator would read and write.
+ * eg:  java GarminConnectInterviewAdjacencyTable.SimulationClient [--host HOST] [--port PORT] ../testcase ../output
+ */
+public class SimulationClient {
+	static final int BUFFER_SIZE = 1 << 16;
+
+	public static void main(String[] args){
+		String host = null, inputFile = null, outputFile = null;
+		int port = 7070;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("--host") && i + 1 < args.length) host = args[++i];
+			else if(args[i].equals("--port") && i + 1 < args.length) port = Integer.valueOf(args[++i]);
+			else if(inputFile == null) inputFile = args[i];
+			else outputFile = args[i];
+		}
+		if(outputFile == null){
+			System.out.println("Usage: java SimulationClient [--host HOST] [--port PORT] inputFile outputFile");
+			return;
+		}
+		try{
+			simulate(host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host), port, inputFile, outputFile);
+		}catch(IOException e){
+			System.out.println("File IOException");
+		}
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - A sender thread copies the input file into the socket, then shuts down the output of the socket
+	 * Step2: - Meanwhile, the caller copies the response into the output file until the server closes the connection
+	 * 			(sending and receiving run concurrently, otherwise both sides could block on full socket buffers)
+	 */
+	public static void simulate(InetAddress host, int port, final String inputFile, String outputFile) throws IOException {
+		final Socket socket = new Socket(host, port);
+		try{
+			final IOException[] sendError = new IOException[1];
+			Thread sender = new Thread(new Runnable(){
+				public void run(){
+					try{
+						InputStream in = new FileInputStream(inputFile);
+						try{
+							copy(in, socket.getOutputStream());
+						}finally{
+							in.close();
+						}
+						socket.shutdownOutput();
+					}catch(IOException e){
+						sendError[0] = e;
+					}
+				}
+			}, "client-sender");
+			sender.start();
+			OutputStream out = new FileOutputStream(outputFile);
+			try{
+				copy(socket.getInputStream(), out);
+			}finally{
+				out.close();
+			}
+			try{
+				sender.join();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			if(sendError[0] != null)
+				throw sendError[0];
+		}finally{
+			socket.close();
+		}
+	}
+
+	static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int length;
+		while((length = in.read(buffer)) > 0)
+			out.write(buffer, 0, length);
+		out.flush();
+	}
+}
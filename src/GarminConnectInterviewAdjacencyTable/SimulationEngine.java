@@ -0,0 +1,27 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.concurrent.ForkJoinPool;
+
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
+
+/***
+ *
+ * A SimulationEngine turns a compiled circuit into its truth table.
+ * Parsing (NetlistTokenizer, MappedNetlistReader), the schedule (LevelizedSchedule) and the output (CircuitWriter) are shared,
+ * so an engine only decides how the gates are evaluated, and every engine must produce the same truth table.
+ * Engines are stateless and may be called by several threads at once, they are listed and picked by EngineSelector.
+ * @method
+ *         name():                             name of the engine for --engine and metrics, eg: bitParallel
+ *         simulate(schedule, pool, metrics):  truth table of schedule.outputPins, or null if the engine gives up on this circuit
+ */
+interface SimulationEngine {
+	String name();
+
+	/***
+	 * @param schedule: compiled circuit, never null
+	 * @param pool:     fork-join pool to evaluate rows, or null, an engine may ignore it
+	 * @param metrics:  record of the circuit, or null if metrics are off,
+	 * 				    gateEvaluations is preset to gates * rows, and an engine may add its own compile time to compileNanos
+	 * @return truth table, or null to fall back to another engine
+	 */
+	TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool, CircuitMetrics metrics);
+}
@@ -0,0 +1,156 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/***
+ * 
+ * Per-phase instrumentation of a run. Each circuit gets a CircuitMetrics record, filled by whoever runs the phase
+ * (tokenizer loop, simulateCircuit, writer), then added here, and totals are kept in atomic counters so workers can add concurrently.
+ * When metrics are off no record is created, and every probe is a single null check, so there is no clock read and no allocation.
+ * 		phases:    parse, compile (schedule, optimizer, jit), simulate, write (format and write output)
+ * 		counters:  gate evaluations (gates * rows for row engines, gates re-evaluated by incremental, gates applied by bdd),
+ * 		           rows, bytes written, bytes allocated by the simulating thread (an estimate, fork-join helpers aren't counted)
+ * Exported as a JSON summary file (--metrics FILE), and as a JMX MBean by SimulationServer (--serve PORT --jmx), eg: jconsole, GarminConnectInterviewAdjacencyTable:type=SimulationMetrics
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+	/***
+	 * Metrics of one circuit
+	 */
+	static class CircuitMetrics {
+		final int circuitIndx;
+		String engine = "none";		//engine which produced the truth table, "cache" on a cache hit, "none" on an error
+		int gates;
+		int gatesBeforeOptimize = -1;	//# of gates before NetlistOptimizer, -1 without --optimize
+		long rows, gateEvaluations, bytesWritten, allocatedBytes;
+		long parseNanos, compileNanos, simulateNanos, writeNanos;
+
+		CircuitMetrics(int circuitIndx, long parseNanos){
+			this.circuitIndx = circuitIndx;
+			this.parseNanos = parseNanos;
+		}
+	}
+
+	private final boolean keepCircuits;
+	private final ArrayList<CircuitMetrics> circuits = new ArrayList<CircuitMetrics>();
+	private final AtomicLong numOfCircuit = new AtomicLong(), failed = new AtomicLong(), cached = new AtomicLong();
+	private final AtomicLong parseNanos = new AtomicLong(), compileNanos = new AtomicLong(), simulateNanos = new AtomicLong(), writeNanos = new AtomicLong();
+	private final AtomicLong gateEvaluations = new AtomicLong(), rows = new AtomicLong(), bytesWritten = new AtomicLong(), allocatedBytes = new AtomicLong();
+
+	/***
+	 * @param keepCircuits: keep every CircuitMetrics for the JSON summary, otherwise only totals (eg: a long-running server)
+	 */
+	public SimulationMetrics(boolean keepCircuits){
+		this.keepCircuits = keepCircuits;
+	}
+
+	public void add(CircuitMetrics circuit){
+		numOfCircuit.incrementAndGet();
+		if(circuit.engine.equals("none")) failed.incrementAndGet();
+		if(circuit.engine.equals("cache")) cached.incrementAndGet();
+		parseNanos.addAndGet(circuit.parseNanos);
+		compileNanos.addAndGet(circuit.compileNanos);
+		simulateNanos.addAndGet(circuit.simulateNanos);
+		writeNanos.addAndGet(circuit.writeNanos);
+		gateEvaluations.addAndGet(circuit.gateEvaluations);
+		rows.addAndGet(circuit.rows);
+		bytesWritten.addAndGet(circuit.bytesWritten);
+		allocatedBytes.addAndGet(circuit.allocatedBytes);
+		if(keepCircuits){
+			synchronized(circuits){
+				circuits.add(circuit);
+			}
+		}
+	}
+
+	/***
+	 * Bytes allocated so far by the current thread, -1 if the JVM can't tell
+	 */
+	static long allocatedBytes(){
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/***
+	 * Register as MBean GarminConnectInterviewAdjacencyTable:type=SimulationMetrics on the platform MBean server
+	 */
+	public void registerMBean(){
+		try{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("GarminConnectInterviewAdjacencyTable:type=SimulationMetrics"));
+		}catch(JMException e){
+			System.out.println("Can't register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	public long getCircuits(){return numOfCircuit.get();}
+	public long getFailedCircuits(){return failed.get();}
+	public long getCachedCircuits(){return cached.get();}
+	public double getParseMillis(){return parseNanos.get() / 1e6;}
+	public double getCompileMillis(){return compileNanos.get() / 1e6;}
+	public double getSimulateMillis(){return simulateNanos.get() / 1e6;}
+	public double getWriteMillis(){return writeNanos.get() / 1e6;}
+	public long getGateEvaluations(){return gateEvaluations.get();}
+	public long getRows(){return rows.get();}
+	public long getBytesWritten(){return bytesWritten.get();}
+	public long getAllocatedBytes(){return allocatedBytes.get();}
+
+	/***
+	 * Write totals, then every circuit in input order, as JSON
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public void writeJson(String fileName) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(fileName, false));
+		try{
+			out.write("{\n  \"totals\": {\"circuits\": " + getCircuits() + ", \"failedCircuits\": " + getFailedCircuits() + ", \"cachedCircuits\": " + getCachedCircuits()
+					+ ", \"parseMillis\": " + getParseMillis() + ", \"compileMillis\": " + getCompileMillis() + ", \"simulateMillis\": " + getSimulateMillis()
+					+ ", \"writeMillis\": " + getWriteMillis() + ", \"gateEvaluations\": " + getGateEvaluations() + ", \"rows\": " + getRows()
+					+ ", \"bytesWritten\": " + getBytesWritten() + ", \"allocatedBytes\": " + getAllocatedBytes() + "},\n  \"circuits\": [");
+			ArrayList<CircuitMetrics> sorted;
+			synchronized(circuits){
+				sorted = new ArrayList<CircuitMetrics>(circuits);
+			}
+			Collections.sort(sorted, new Comparator<CircuitMetrics>(){
+				public int compare(CircuitMetrics a, CircuitMetrics b){return Integer.compare(a.circuitIndx, b.circuitIndx);}
+			});
+			for(int i = 0; i < sorted.size(); ++i){
+				CircuitMetrics c = sorted.get(i);
+				out.write((i == 0 ? "\n" : ",\n") + "    {\"circuit\": " + (c.circuitIndx+1) + ", \"engine\": " + quote(c.engine) + ", \"gates\": " + c.gates
+						+ ", \"rows\": " + c.rows + ", \"parseNanos\": " + c.parseNanos + ", \"compileNanos\": " + c.compileNanos
+						+ ", \"simulateNanos\": " + c.simulateNanos + ", \"writeNanos\": " + c.writeNanos + ", \"gateEvaluations\": " + c.gateEvaluations
+						+ ", \"bytesWritten\": " + c.bytesWritten + ", \"allocatedBytes\": " + c.allocatedBytes
+						+ (c.gatesBeforeOptimize >= 0 ? ", \"gatesBeforeOptimize\": " + c.gatesBeforeOptimize : "") + "}");
+			}
+			out.write("\n  ]\n}\n");
+		}finally{
+			out.close();
+		}
+	}
+
+	/***
+	 * String as a JSON string literal, every string value of the JSON summary goes through here
+	 * eg: C:\out "new" -> "C:\\out \"new\""
+	 */
+	static String quote(String value){
+		StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+		for(int i = 0; i < value.length(); ++i){
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\')
+				json.append('\\').append(c);
+			else if(c < 0x20)
+				json.append(String.format("\\u%04x", (int)c));
+			else
+				json.append(c);
+		}
+		return json.append('"').toString();
+	}
+}
@@ -0,0 +1,18 @@
+package GarminConnectInterviewAdjacencyTable;
+
+/***
+ * JMX view of SimulationMetrics, totals since the metrics were created
+ */
+public interface SimulationMetricsMBean {
+	long getCircuits();
+	long getFailedCircuits();
+	long getCachedCircuits();
+	double getParseMillis();
+	double getCompileMillis();
+	double getSimulateMillis();
+	double getWriteMillis();
+	long getGateEvaluations();
+	long getRows();
+	long getBytesWritten();
+	long getAllocatedBytes();
+}
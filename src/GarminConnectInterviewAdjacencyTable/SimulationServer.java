@@ -0,0 +1,96 @@
+package GarminConnectInterviewAdjacencyTable;
+import GarminConnectInterviewAdjacencyTable.SimulationMetrics.CircuitMetrics;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/***
+ * Long-running simulation server, so JVM startup and JIT warm-up are paid once instead of once per file.
+ * Protocol, over TCP on localhost: the client sends a netlist file in input file format and shuts down its output,
+ * the server streams back the output file format, circuit by circuit, then closes the connection.
+ * Each connection is handled by its own virtual thread when the JVM has them (Java 21+), otherwise by a cached thread pool.
+ * All connections share one fork-join pool, one ResultCache and, with --jmx, one SimulationMetrics MBean, so a circuit simulated for one client is a hit for the others.
+ * eg:  java GarminConnectInterviewAdjacencyTable.MainSimulator --serve 7070 --engine jit --cache 256
+ * 		java GarminConnectInterviewAdjacencyTable.SimulationClient --port 7070 ../testcase ../output
+ */
+public class SimulationServer {
+	static final int DEFAULT_CACHE_BYTES = 64 * 1048576;
+
+	/***
+	 * Accept connections until the process is stopped
+	 * @param options: port, and how circuits are simulated, the cache is always on (64 MB unless --cache is given)
+	 * @throws IOException if the port can't be bound
+	 */
+	public static void serve(final SimulatorOptions options) throws IOException {
+		final ForkJoinPool pool = (options.threads > 1) ? new ForkJoinPool(options.threads) : null;
+		if(options.cacheBytes == 0)
+			options.cacheBytes = DEFAULT_CACHE_BYTES;
+		final ResultCache cache = options.createCache();
+		final SimulationMetrics metrics = options.jmx ? options.createMetrics() : null;	//totals only, a server has no end to write JSON at
+		ExecutorService executor = newPerRequestExecutor();
+		ServerSocket server = new ServerSocket(options.port, 50, InetAddress.getLoopbackAddress());
+		System.out.println("Simulation server listening on " + server.getLocalSocketAddress());
+		try{
+			while(true){
+				final Socket socket = server.accept();
+				executor.execute(new Runnable(){
+					public void run(){
+						handle(socket, pool, cache, metrics, options);
+					}
+				});
+			}
+		}finally{
+			server.close();
+			executor.shutdown();
+			if(pool != null)
+				pool.shutdown();
+		}
+	}
+
+	/***
+	 * Simulate every circuit of one request, and flush each truth table as soon as it is written so the client gets them streamed
+	 */
+	static void handle(Socket socket, ForkJoinPool pool, ResultCache cache, SimulationMetrics metrics, SimulatorOptions options){
+		try{
+			try{
+				NetlistTokenizer tokenizer = new NetlistTokenizer(socket.getInputStream());
+				TruthTableWriter writer = new TruthTableWriter(Channels.newChannel(socket.getOutputStream()));
+				try{
+					while(true){
+						long begin = (metrics == null) ? 0 : System.nanoTime();
+						ParsedCircuit circuit = tokenizer.next();
+						if(circuit == null)
+							break;
+						CircuitMetrics record = (metrics == null) ? null : new CircuitMetrics(circuit.circuitIndx, System.nanoTime() - begin);
+						MainSimulator.writeCircuit(writer, circuit, MainSimulator.simulateCircuit(circuit, pool, cache, options, record), record);
+						writer.flush();
+						if(record != null)
+							metrics.add(record);
+					}
+				}finally{
+					writer.close();		//also on a broken connection, to give its buffer back to the pool
+				}
+			}finally{
+				socket.close();
+			}
+		}catch(IOException e){
+			System.out.println("Connection error: " + e.getMessage());
+		}
+	}
+
+	/***
+	 * Executors.newVirtualThreadPerTaskExecutor() if this JVM has it, looked up by reflection since the project targets Java 8
+	 */
+	static ExecutorService newPerRequestExecutor(){
+		try{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}catch(Exception e){
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.File;
+
+/***
+ * 
+ * Command line options of MainSimulator
+ * @param  inputFile:   input file name, first positional argument
+ *         outputFile:  output file name, second positional argument
+ *         threads:     --threads N, # of threads evaluating rows of a circuit (1 = sequential)
+ *         workers:     --workers N, # of workers of pipelined batch mode (0 = simulate circuits one by one)
+ *         engine:      --engine NAME, SimulationEngine of every circuit, auto (default) lets EngineSelector pick one per circuit,
+ *                      --jit, --incremental and --bdd are short for --engine jit, incremental and bdd
+ *         optimize:    --optimize, shrink each circuit by NetlistOptimizer before simulation
+ *         verbose:     --verbose, print details of each circuit on the console, eg: gates before -> after --optimize
+ *         cacheBytes:  --cache MB, bound of the in-memory ResultCache (0 = no cache unless --cache-dir is given, then 64 MB)
+ *         cacheDir:    --cache-dir DIR, disk tier of the ResultCache
+ *         mmap:        --mmap, read the input file by MappedNetlistReader (memory-mapped, boundaries found in parallel)
+ *         binary:      --binary, write the bit-packed binary output format instead of text
+ *         metricsFile: --metrics FILE, write per-phase metrics of every circuit as JSON by SimulationMetrics
+ *         jmx:         --jmx, export metrics totals of SimulationServer as a JMX MBean (--serve only, a batch run exits before anything can attach)
+ *         port:        --serve PORT, run SimulationServer on localhost instead of simulating a file (0 = no server)
+ *         processes:   --processes N, sharded mode: ShardCoordinator starts N local ShardWorker JVMs (0 = not sharded unless --listen is given)
+ *         listenPort:  --listen PORT, sharded mode: ShardCoordinator also accepts workers of other machines on PORT
+ *         shardSize:   --shard-size N, # of consecutive circuits sent to a worker at once
+ *         checkpointSeconds: --checkpoint SECONDS, commit a CheckpointJournal of the output file every SECONDS (0 = off, 10 with --resume)
+ *         resume:      --resume, skip the circuits the CheckpointJournal of the output file says are written
+ *         coordinatorHost, coordinatorPort: --connect HOST:PORT, run as a ShardWorker of the coordinator instead of simulating a file
+ */
+class SimulatorOptions {
+	static final int DEFAULT_CHECKPOINT_SECONDS = 10;
+	public String inputFile;
+	public String outputFile;
+	public int threads = 1;
+	public int workers = 0;
+	public SimulationEngine engine = EngineSelector.SELECTOR;
+	public boolean optimize = false;
+	public boolean verbose = false;
+	public long cacheBytes = 0;
+	public String cacheDir;
+	public boolean mmap = false;
+	public boolean binary = false;
+	public String metricsFile;
+	public boolean jmx = false;
+	public int port = 0;
+	public int processes = 0;
+	public int listenPort = 0;
+	public int shardSize = 32;
+	public int checkpointSeconds = 0;
+	public boolean resume = false;
+	public String coordinatorHost;
+	public int coordinatorPort = 0;
+
+	/***
+	 * Parse command line arguments
+	 * eg: java MainSimulator --threads 8 ../testcase ../output
+	 * @param args
+	 * @return options
+	 * @throws IllegalArgumentException if any option is unknown, misses its value, or positional arguments are missing
+	 */
+	public static SimulatorOptions parse(String[] args){
+		SimulatorOptions options = new SimulatorOptions();
+		for(int i = 0; i < args.length; ++i){
+			String arg = args[i];
+			if(arg.equals("--threads")){
+				options.threads = intValue(args, ++i, arg);
+				if(options.threads <= 0)
+					throw new IllegalArgumentException("--threads should be larger than 0");
+			}else if(arg.equals("--workers")){
+				options.workers = intValue(args, ++i, arg);
+				if(options.workers < 0)
+					throw new IllegalArgumentException("--workers should not be negative");
+			}else if(arg.equals("--engine")){
+				options.engine = EngineSelector.engine(value(args, ++i, arg));
+				if(options.engine == null)
+					throw new IllegalArgumentException("--engine should be one of " + EngineSelector.names());
+			}else if(arg.equals("--jit") || arg.equals("--incremental") || arg.equals("--bdd"))
+				options.engine = EngineSelector.engine(arg.substring(2));
+			else if(arg.equals("--optimize"))
+				options.optimize = true;
+			else if(arg.equals("--verbose"))
+				options.verbose = true;
+			else if(arg.equals("--cache")){
+				options.cacheBytes = intValue(args, ++i, arg) * 1048576L;
+				if(options.cacheBytes <= 0)
+					throw new IllegalArgumentException("--cache should be larger than 0");
+			}else if(arg.equals("--cache-dir"))
+				options.cacheDir = value(args, ++i, arg);
+			else if(arg.equals("--mmap"))
+				options.mmap = true;
+			else if(arg.equals("--binary"))
+				options.binary = true;
+			else if(arg.equals("--metrics"))
+				options.metricsFile = value(args, ++i, arg);
+			else if(arg.equals("--jmx"))
+				options.jmx = true;
+			else if(arg.equals("--serve")){
+				options.port = intValue(args, ++i, arg);
+				if(options.port <= 0 || options.port > 65535)
+					throw new IllegalArgumentException("--serve should be a port number");
+			}else if(arg.equals("--processes")){
+				options.processes = intValue(args, ++i, arg);
+				if(options.processes < 0)
+					throw new IllegalArgumentException("--processes should not be negative");
+			}else if(arg.equals("--listen")){
+				options.listenPort = intValue(args, ++i, arg);
+				if(options.listenPort <= 0 || options.listenPort > 65535)
+					throw new IllegalArgumentException("--listen should be a port number");
+			}else if(arg.equals("--shard-size")){
+				options.shardSize = intValue(args, ++i, arg);
+				if(options.shardSize <= 0)
+					throw new IllegalArgumentException("--shard-size should be larger than 0");
+			}else if(arg.equals("--checkpoint")){
+				options.checkpointSeconds = intValue(args, ++i, arg);
+				if(options.checkpointSeconds <= 0)
+					throw new IllegalArgumentException("--checkpoint should be larger than 0");
+			}else if(arg.equals("--resume"))
+				options.resume = true;
+			else if(arg.equals("--connect")){
+				String address = value(args, ++i, arg);
+				int colon = address.lastIndexOf(':');
+				if(colon <= 0)
+					throw new IllegalArgumentException("--connect should be HOST:PORT");
+				options.coordinatorHost = address.substring(0, colon);
+				try{
+					options.coordinatorPort = Integer.valueOf(address.substring(colon + 1));
+				}catch(NumberFormatException e){
+					throw new IllegalArgumentException("--connect should be HOST:PORT");
+				}
+			}
+			else if(arg.startsWith("--"))
+				throw new IllegalArgumentException("Unknown option " + arg);
+			else if(options.inputFile == null)
+				options.inputFile = arg;
+			else if(options.outputFile == null)
+				options.outputFile = arg;
+			else
+				throw new IllegalArgumentException("Unexpected argument " + arg);
+		}
+		if(options.jmx && options.port == 0)
+			throw new IllegalArgumentException("--jmx needs --serve PORT, a batch run exits before anything can attach to the MBean");
+		if((options.processes > 0 || options.listenPort > 0) && options.metricsFile != null)
+			throw new IllegalArgumentException("--metrics isn't supported in sharded mode (--processes, --listen)");
+		if((options.port > 0 || options.coordinatorHost != null) && options.inputFile != null)
+			throw new IllegalArgumentException((options.port > 0 ? "--serve" : "--connect") + " takes no input or output file");
+		if(options.port == 0 && options.coordinatorHost == null && options.outputFile == null)
+			throw new IllegalArgumentException("Usage: java MainSimulator [--threads N] [--workers N] [--engine NAME] [--optimize] [--verbose] [--cache MB] [--cache-dir DIR] [--mmap] [--binary] [--metrics FILE] [--checkpoint SECONDS] [--resume] inputFile outputFile\n"
+					+ "       java MainSimulator [--processes N] [--listen PORT] [--shard-size N] [--threads N] [--engine NAME] [--optimize] [--verbose] [--cache MB] [--cache-dir DIR] [--mmap] [--binary] [--checkpoint SECONDS] [--resume] inputFile outputFile\n"
+					+ "       java MainSimulator --connect HOST:PORT [--threads N] [--engine NAME] [--optimize] [--verbose] [--cache MB] [--cache-dir DIR]\n"
+					+ "       java MainSimulator --serve PORT [--threads N] [--engine NAME] [--optimize] [--verbose] [--cache MB] [--cache-dir DIR] [--jmx]");
+		if(options.resume && options.checkpointSeconds == 0)
+			options.checkpointSeconds = DEFAULT_CHECKPOINT_SECONDS;
+		if(options.cacheDir != null && options.cacheBytes == 0)
+			options.cacheBytes = 64 * 1048576L;
+		return options;
+	}
+
+	/***
+	 * @return new SimulationMetrics as configured, registered as MBean with --jmx, or null if metrics are off
+	 */
+	public SimulationMetrics createMetrics(){
+		if(metricsFile == null && !jmx)
+			return null;
+		SimulationMetrics metrics = new SimulationMetrics(metricsFile != null);
+		if(jmx)
+			metrics.registerMBean();
+		return metrics;
+	}
+
+	/***
+	 * @return a new ResultCache as configured, or null if no cache is asked for
+	 */
+	public ResultCache createCache(){
+		if(cacheBytes == 0)
+			return null;
+		return new ResultCache(cacheBytes, cacheDir == null ? null : new File(cacheDir));
+	}
+
+	private static String value(String[] args, int i, String option){
+		if(i >= args.length)
+			throw new IllegalArgumentException("Missing value of " + option);
+		return args[i];
+	}
+
+	private static int intValue(String[] args, int i, String option){
+		try{
+			return Integer.valueOf(value(args, i, option));
+		}catch(NumberFormatException e){
+			throw new IllegalArgumentException("Wrong value of " + option + ": " + args[i]);
+		}
+	}
+}
@@ -1,6 +1,7 @@
-package GarminConnectInterviewNodeEdge;
+package GarminConnectInterviewAdjacencyTable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 
@@ -20,11 +21,11 @@ public class TopologicalSort {
 	 *						2 2 -3 0
 	 * @return allNodes in DAG
 	 */
-	public static ArrayList<Node> constructDAG(Boolean[] rowInTruthTable, String circuit){
+	public static ArrayList<Vertex> constructDAG(Boolean[] rowInTruthTable, String circuit){
 		//nis: ArrayList for input pins
-		ArrayList<Node> nis = new ArrayList<Node>();
+		ArrayList<Vertex> nis = new ArrayList<Vertex>();
 		//ngs: ArrayList for logic gates
-		ArrayList<Node> ngs = new ArrayList<Node>();
+		ArrayList<Vertex> ngs = new ArrayList<Vertex>();
 		int numOfGate = 0;
 		try{
 			String[] docSplit = circuit.split("\n");
@@ -36,10 +37,11 @@ public class TopologicalSort {
 					if(Integer.valueOf(line)<=0 || Integer.valueOf(line)>16)
 						return null;
 					else{
-						//initialize ArrayList<Node> for input pins
+						//initialize ArrayList<Vertex> for input pins
 						for(int j = 0; j < Integer.valueOf(line); ++j){
-							nis.add(new Node("i" + (j+1)));
-							nis.get(j).setInBit(rowInTruthTable[j]);
+							nis.add(new Vertex("i" + (j+1)));
+							if(rowInTruthTable != null)		//null when the graph is built once by compile()
+								nis.get(j).setInBit(rowInTruthTable[j]);
 						}
 					}
 				}else if (i == 1){
@@ -47,9 +49,9 @@ public class TopologicalSort {
 					if(Integer.valueOf(line)<=0 || Integer.valueOf(line)>1000)
 						return null;
 					else{
-						//initialize ArrayList<Node> for logic gates
+						//initialize ArrayList<Vertex> for logic gates
 						for(int j = 0; j < Integer.valueOf(line); ++j) 
-							ngs.add(new Node("g" + (j+1)));
+							ngs.add(new Vertex("g" + (j+1)));
 					}
 				}else{
 					//set link between logic gate and input pin
@@ -83,7 +85,7 @@ public class TopologicalSort {
 			return null;
 		}
 		//Combine nis and ngs
-		ArrayList<Node> allNodes = new ArrayList<Node>(nis);
+		ArrayList<Vertex> allNodes = new ArrayList<Vertex>(nis);
 		allNodes.addAll(ngs);
 		return allNodes;
 	}
@@ -107,19 +109,19 @@ public class TopologicalSort {
 	 * @param  indx: index of the circuit
 	 * @return outputPins: Nodes who have no outEdges, which means the end nodes in the graph. (output pins in the circuit)
 	 */
-	public static ArrayList<Node> sort(Boolean[] rowInTruthTable, String circuit, int indx) {
+	public static ArrayList<Vertex> sort(Boolean[] rowInTruthTable, String circuit, int indx) {
 	//Step1: construct a directed acyclic graph
-		ArrayList<Node> graph = constructDAG(rowInTruthTable, circuit);
+		ArrayList<Vertex> graph = constructDAG(rowInTruthTable, circuit);
 		if(graph == null) return null;
 		//L: This Empty ArrayList will contain all sorted nodes in topological order,
-		ArrayList<Node> L = new ArrayList<Node>();
+		ArrayList<Vertex> L = new ArrayList<Vertex>();
 		//outPutPins: But what we actually need is those nodes marked as inEndNode in L, therefore we extract them from L to outputPins
-		ArrayList<Node> outputPins = new ArrayList<Node>();	
+		ArrayList<Vertex> outputPins = new ArrayList<Vertex>();	
 		//S: Set of all nodes with no incoming edges
-		HashSet<Node> S = new HashSet<Node>();
+		HashSet<Vertex> S = new HashSet<Vertex>();
 		
 	//Step2: Update S, L by breadth first search
-		for(Node n : graph){
+		for(Vertex n : graph){
 			if(n.inEdges.size() == 0)	
 				S.add(n);
 			//For those who has no outgoing edges, mark them as end nodes
@@ -129,7 +131,7 @@ public class TopologicalSort {
 		//while S is non-empty do
 		while(!S.isEmpty()){
 			//remove a node n from S
-			Node n = S.iterator().next();
+			Vertex n = S.iterator().next();
 			S.remove(n);
 			//insert n into L
 			L.add(n);
@@ -138,7 +140,7 @@ public class TopologicalSort {
 			for(Iterator<Edge> it = n.outEdges.iterator();it.hasNext();){
 				//remove edge e from the graph
 				Edge e = it.next();
-				Node m = e.to;
+				Vertex m = e.to;
 				it.remove();					//Remove edge from n
 				m.inEdges.remove(e);			//Remove edge from m
 				m.addInBit(n);					//add output of n to m
@@ -151,7 +153,7 @@ public class TopologicalSort {
 		}//end while
 		
 	//Step3: Check if all edges are removed, if not, there is a cycle
-		for(Node n : graph){
+		for(Vertex n : graph){
 			if(!n.inEdges.isEmpty()){
 				System.out.println("There is a cycle in the graph!");
 				return null; //cycle = true;
@@ -159,7 +161,7 @@ public class TopologicalSort {
 		}
 
 		Collections.sort(L, new NameComparator());	//Sort L by name
-		for(Node node: L){
+		for(Vertex node: L){
 			//We only needs gate nodes without outgoing edges in L
 			if(node.isEndNode && node.type > 0)
 				outputPins.add(node);
@@ -167,4 +169,78 @@ public class TopologicalSort {
 		
 		return outputPins;		
 	}
+
+	/***
+	 * ALGORITHM - Parse String circuit once, and return all nodes in topological order without removing any edge.
+	 * step1: Construct a directed acyclic graph without input signals.
+	 * step2: Perform Kahn's algorithm on a counter of incoming edges of each node, instead of removing edges from the graph.
+	 * 		  S is a FIFO queue seeded in graph order, so the first NI nodes of the result are the input pins i1 ~ iNI.
+	 * step3: If some node is never reached, there is a cycle and no output can be determined, return null.
+	 *
+	 * @param  circuit
+	 * @return L: all nodes in topological order, which can be evaluated by evaluate() for every row in truth table
+	 */
+	public static ArrayList<Vertex> compile(String circuit){
+	//Step1: construct a directed acyclic graph
+		ArrayList<Vertex> graph = constructDAG(null, circuit);
+		if(graph == null) return null;
+		ArrayList<Vertex> L = new ArrayList<Vertex>();
+		HashMap<Vertex, Integer> inDegree = new HashMap<Vertex, Integer>();
+	//Step2: Kahn's algorithm on counters
+		for(Vertex n : graph){
+			inDegree.put(n, n.inEdges.size());
+			if(n.inEdges.size() == 0)
+				L.add(n);
+			n.isEndNode = (n.outEdges.size() == 0);
+		}
+		for(int head = 0; head < L.size(); ++head){		//L[head, L.size()) works as S
+			for(Edge e : L.get(head).outEdges){
+				int counter = inDegree.get(e.to) - 1;
+				inDegree.put(e.to, counter);
+				if(counter == 0)
+					L.add(e.to);
+			}
+		}
+	//Step3: Check if all nodes are reached, if not, there is a cycle
+		if(L.size() < graph.size()){
+			System.out.println("There is a cycle in the graph!");
+			return null;
+		}
+		return L;
+	}
+	
+	/***
+	 * Extract output pins from a compiled graph
+	 * @param  L: nodes in topological order returned by compile()
+	 * @return outputPins: gate nodes without outEdges, sorted by name
+	 */
+	public static ArrayList<Vertex> outputPins(ArrayList<Vertex> L){
+		ArrayList<Vertex> outputPins = new ArrayList<Vertex>();
+		for(Vertex node: L){
+			if(node.isEndNode && node.type > 0)
+				outputPins.add(node);
+		}
+		Collections.sort(outputPins, new NameComparator());	//Sort by name
+		return outputPins;
+	}
+	
+	/***
+	 * Evaluate a compiled graph with one row of truth table, the graph itself is not modified.
+	 * Every node in L is visited in topological order, so all input bits of a node are ready before it operates.
+	 * @param rowInTruthTable: eg: rowIntruthTable=[1,1,0] when there are three input pins 
+	 * @param L:               nodes in topological order returned by compile()
+	 * @param numOfInput:      # of input pins
+	 */
+	public static void evaluate(Boolean[] rowInTruthTable, ArrayList<Vertex> L, int numOfInput){
+		for(Vertex n : L)
+			n.inBits.clear();
+		for(int i = 0; i < numOfInput; ++i)
+			L.get(i).setInBit(rowInTruthTable[i]);
+		for(Vertex n : L){
+			if(!n.inEdges.isEmpty())	//all in-flow bits of n have been passed to it
+				n.operate();
+			for(Edge e : n.outEdges)	//pass output of n to all nodes pointed by it
+				e.to.addInBit(n);
+		}
+	}
 }
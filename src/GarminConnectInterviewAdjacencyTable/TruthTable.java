@@ -0,0 +1,67 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * 
+ * A TruthTable instance holds the output columns of a circuit, packed 64 rows per long word.
+ * Row r of the truth table is the r-th combination in binary order, input pin 1 being the most significant bit.
+ * @param  numOfInput:  # of input pins
+ *         numOfOutput: # of output pins
+ *         numOfRow:    2^numOfInput
+ *         numOfWord:   # of long words per output column, bit (r % 64) of word (r / 64) belongs to row r
+ * The words are stored off-heap, in a direct buffer of DirectBufferPool sized from numOfInput and numOfOutput,
+ * so the heap used by a batch doesn't grow with the tables waiting to be written.
+ * A table is reference counted: it is created with one reference, the writer releases it once the circuit is written,
+ * and ResultCache retains it as long as it is cached. The buffer goes back to the pool when the last reference is released.
+ * @method 
+ *         inputBit(row, input):    bit of input pin (0-based) in the given row
+ *         getBit(row, output):     bit of output pin (0-based) in the given row
+ *         getWord/setWord:         access 64 rows of an output column at once
+ *         retain/release:          take/drop a reference, the table must not be used after its last release
+ */
+class TruthTable {
+	public final int numOfInput;
+	public final int numOfOutput;
+	public final int numOfRow;
+	public final int numOfWord;
+	private ByteBuffer buffer;
+	private LongBuffer words;		//words[output * numOfWord + w]
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	public TruthTable(int numOfInput, int numOfOutput){
+		this.numOfInput = numOfInput;
+		this.numOfOutput = numOfOutput;
+		this.numOfRow = 1 << numOfInput;
+		this.numOfWord = (numOfRow + 63) >>> 6;
+		this.buffer = DirectBufferPool.allocate(8L * numOfOutput * numOfWord);
+		this.words = buffer.asLongBuffer();
+	}
+
+	public long getWord(int output, int w){return words.get(output * numOfWord + w);}
+
+	public void setWord(int output, int w, long word){words.put(output * numOfWord + w, word);}
+
+	public boolean getBit(int row, int output){
+		return ((words.get(output * numOfWord + (row >>> 6)) >>> (row & 63)) & 1L) != 0;
+	}
+
+	public TruthTable retain(){
+		references.incrementAndGet();
+		return this;
+	}
+
+	public void release(){
+		if(references.decrementAndGet() == 0){
+			ByteBuffer free = buffer;
+			buffer = null;
+			words = null;
+			DirectBufferPool.release(free);
+		}
+	}
+
+	public boolean inputBit(int row, int input){
+		return ((row >>> (numOfInput - 1 - input)) & 1) != 0;
+	}
+}
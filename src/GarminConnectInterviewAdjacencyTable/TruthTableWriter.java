@@ -0,0 +1,178 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/***
+ * 
+ * Streaming writer of the output file. Heads and rows are encoded straight into one reusable direct buffer,
+ * which is flushed through a channel whenever it is full, so no String is built for the truth table.
+ * The buffer is taken from DirectBufferPool and given back on close(), so a server writing one response per request reuses it.
+ * The text format is exactly the same as before, eg:
+ * 		Circuit 1: 2 output pins
+ * 		Truth table:
+ * 		i i | o o
+ * 		1 2 | 1 2
+ * 		----+----
+ * 		0 0 | 0 0
+ * 		...
+ * @method 
+ *         writeCircuit(circuit, table):			 write the truth table of a circuit, or its error message if table is null
+ *         writeTruthTable(circuitIndx, table):	 write title, heads and all rows of a circuit
+ *         writeText(String):	 				 write a message, eg: error message of a circuit
+ *         flush():		     					 write buffered bytes into channel
+ *         force():		     					 flush, then force the file to the storage device
+ *         close():		 						 flush and close channel, then give the buffer back to the pool
+ */
+class TruthTableWriter implements CircuitWriter {
+	static final int BUFFER_SIZE = 1 << 20;
+	static final byte[] NEW_LINE = {'\n'};
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = DirectBufferPool.allocate(BUFFER_SIZE);
+	private long bytesWritten = 0;
+
+	public TruthTableWriter(WritableByteChannel channel){
+		this.channel = channel;
+	}
+
+	public TruthTableWriter(String fileName) throws IOException {
+		this(new FileOutputStream(fileName, false).getChannel());
+	}
+
+	/***
+	 * Append to an output file whose first offset bytes are valid, eg: on --resume, the rest of the file is cut off
+	 * @param fileName
+	 * @param offset: size of the valid output, 0 for a new file
+	 */
+	public TruthTableWriter(String fileName, long offset) throws IOException {
+		this(offset == 0 ? new FileOutputStream(fileName, false).getChannel() : new RandomAccessFile(fileName, "rw").getChannel());
+		if(offset > 0){
+			FileChannel file = (FileChannel)channel;
+			file.truncate(offset);
+			file.position(offset);
+			bytesWritten = offset;
+		}
+	}
+
+	@Override
+	public void writeCircuit(ParsedCircuit circuit, TruthTable table) throws IOException {
+		if(table == null)
+			writeText(MainSimulator.errorMessage(circuit));
+		else
+			writeTruthTable(circuit.circuitIndx, table);
+	}
+
+	/***
+	 * ALGORITHM
+	 * Step1: - Encode title and heads once
+	 * Step2: - Precompute a row pattern "0 0 ... 0 | 0 ... 0\n", then for each row:
+	 * 				- Update only the input bits which differ from the previous row (row ^ (row - 1))
+	 * 				- Update all output bits from the packed words of truth table
+	 * 				- Copy the pattern into buffer
+	 * @param circuitIndx: index of the circuit, starting from 0
+	 * @param table
+	 * @throws IOException
+	 */
+	public void writeTruthTable(int circuitIndx, TruthTable table) throws IOException {
+	//Step1: title and heads
+		int numOfInput = table.numOfInput, numOfOutput = table.numOfOutput;
+		StringBuilder head = new StringBuilder();
+		head.append("Circuit ").append(circuitIndx+1).append(": ").append(numOfOutput).append(" output pin").append(numOfOutput>1 ? "s" : "").append("\nTruth table:\n");
+		for(int i = 0; i < numOfInput; ++i)
+			head.append("i ");
+		head.append('|');
+		for(int k = 0; k < numOfOutput; ++k)
+			head.append(" o");
+		head.append('\n');
+		for(int i = 0; i < numOfInput; ++i)
+			head.append(i+1).append(' ');
+		head.append('|');
+		for(int k = 0; k < numOfOutput; ++k)
+			head.append(' ').append(k+1);
+		head.append('\n');
+		for(int i = 0; i < numOfInput; ++i)
+			head.append("--");
+		head.append('+');
+		for(int k = 0; k < numOfOutput; ++k)
+			head.append("--");
+		head.append('\n');
+		writeText(head.toString());
+	//Step2: rows
+		byte[] pattern = new byte[2 * numOfInput + 2 * numOfOutput + 2];
+		for(int i = 0; i < numOfInput; ++i){
+			pattern[2 * i] = '0';
+			pattern[2 * i + 1] = ' ';
+		}
+		pattern[2 * numOfInput] = '|';
+		int outputBegin = 2 * numOfInput + 1;
+		for(int k = 0; k < numOfOutput; ++k){
+			pattern[outputBegin + 2 * k] = ' ';
+			pattern[outputBegin + 2 * k + 1] = '0';
+		}
+		pattern[pattern.length - 1] = '\n';
+		long[] words = new long[numOfOutput];		//word (row / 64) of each output, read off-heap once per 64 rows
+		for(int row = 0; row < table.numOfRow; ++row){
+			for(int changed = row ^ (row - 1), i = numOfInput - 1; row > 0 && changed != 0 && i >= 0; changed >>>= 1, --i)
+				pattern[2 * i] = table.inputBit(row, i) ? (byte)'1' : (byte)'0';
+			int bit = row & 63;
+			if(bit == 0){
+				for(int k = 0; k < numOfOutput; ++k)
+					words[k] = table.getWord(k, row >>> 6);
+			}
+			for(int k = 0; k < numOfOutput; ++k)
+				pattern[outputBegin + 2 * k + 1] = (byte)('0' + ((words[k] >>> bit) & 1L));
+			put(pattern);
+		}
+		put(NEW_LINE);
+	}
+
+	public void writeText(String text) throws IOException {
+		byte[] bytes = text.getBytes("US-ASCII");
+		put(bytes);
+	}
+
+	private void put(byte[] bytes) throws IOException {
+		int offset = 0;
+		while(offset < bytes.length){
+			if(!buffer.hasRemaining())
+				flush();
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			bytesWritten += channel.write(buffer);
+		buffer.clear();
+	}
+
+	@Override
+	public long size(){return bytesWritten + buffer.position();}
+
+	@Override
+	public void force() throws IOException {
+		flush();
+		if(channel instanceof FileChannel)
+			((FileChannel)channel).force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try{
+			flush();
+		}finally{
+			try{
+				channel.close();
+			}finally{
+				DirectBufferPool.release(buffer);
+			}
+		}
+	}
+}
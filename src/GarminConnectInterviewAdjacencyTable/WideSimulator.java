@@ -0,0 +1,118 @@
+package GarminConnectInterviewAdjacencyTable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/***
+ * Block-wide bit-parallel evaluation of a LevelizedSchedule.
+ * BitParallelSimulator walks the whole schedule once per long word, so the switch on gate type and the fan-in lookups are paid every 64 rows.
+ * Here each node holds LANES consecutive words (1024 rows), and every gate is evaluated by short loops over its lanes,
+ * eg: acc[j] &= values[m * LANES + j] for j < LANES, which HotSpot's superword optimization turns into 256/512-bit SIMD instructions
+ * (AVX2/AVX-512, or NEON) where the CPU has them, and which run as plain scalar loops where it doesn't.
+ * eg: a circuit with 16 input pins is evaluated by 64 passes over the schedule instead of 1024.
+ */
+public class WideSimulator {
+	static final int LANES = 16;		//words per block, 16 * 64 = 1024 rows
+
+	/***
+	 * ALGORITHM - For each block of LANES words (1024 rows) of truth table:
+	 * 				- Initialize lanes of input pins with counting patterns
+	 * 				- Evaluate gates in schedule order, each gate by one loop per fan-in over its lanes
+	 * 				- Copy lanes of output pins into truth table
+	 * @param  schedule
+	 * @param  pool: fork-join pool, or null to evaluate sequentially
+	 * @return truth table of all output pins
+	 */
+	public static TruthTable simulate(LevelizedSchedule schedule, ForkJoinPool pool){
+		TruthTable table = new TruthTable(schedule.numOfInput, schedule.outputPins.length);
+		int lanes = Math.min(LANES, table.numOfWord);
+		int numOfBlock = table.numOfWord / lanes;
+		if(pool == null)
+			new BlockRange(schedule, table, lanes, 0, numOfBlock).compute();
+		else
+			pool.invoke(new BlockRange(schedule, table, lanes, 0, numOfBlock));
+		return table;
+	}
+
+	/***
+	 * Fork-join task evaluating blocks [begin, end) of a truth table, each task has its own scratch lanes
+	 */
+	static class BlockRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int THRESHOLD = 1;		//# of blocks evaluated by a task without splitting
+		final LevelizedSchedule schedule;
+		final TruthTable table;
+		final int lanes, begin, end;
+
+		BlockRange(LevelizedSchedule schedule, TruthTable table, int lanes, int begin, int end){
+			this.schedule = schedule;
+			this.table = table;
+			this.lanes = lanes;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute(){
+			if(end - begin > THRESHOLD){
+				int mid = (begin + end) >>> 1;
+				invokeAll(new BlockRange(schedule, table, lanes, begin, mid), new BlockRange(schedule, table, lanes, mid, end));
+				return;
+			}
+			long[] values = new long[schedule.numOfNode * lanes];	//values[n * lanes + j]: word j of the block of node n
+			long[] acc = new long[lanes];
+			for(int b = begin; b < end; ++b){
+				evaluateBlock(schedule, b * lanes, lanes, values, acc);
+				for(int k = 0; k < schedule.outputPins.length; ++k){
+					int out = schedule.outputPins[k] * lanes;
+					for(int j = 0; j < lanes; ++j)
+						table.setWord(k, b * lanes + j, values[out + j]);
+				}
+			}
+		}
+	}
+
+	/***
+	 * Evaluate lanes * 64 rows of truth table against the schedule.
+	 * Every lane loop reads one array and writes another, so they have no aliasing and are vectorized.
+	 * @param schedule
+	 * @param firstWord: index of the first word of the block
+	 * @param lanes:     # of words of the block
+	 * @param values:    scratch array of size numOfNode * lanes
+	 * @param acc:       scratch array of size lanes
+	 */
+	static void evaluateBlock(LevelizedSchedule schedule, int firstWord, int lanes, long[] values, long[] acc){
+		int numOfInput = schedule.numOfInput;
+		for(int i = 0; i < numOfInput; ++i){
+			for(int j = 0; j < lanes; ++j)
+				values[i * lanes + j] = BitParallelSimulator.inputWord(numOfInput, i, firstWord + j);
+		}
+		int[] fanInOffset = schedule.fanInOffset, fanInIndex = schedule.fanInIndex;
+		for(int n: schedule.order){
+			int first = fanInOffset[n], last = fanInOffset[n + 1];
+			switch(schedule.types[n]){
+				case 2://OR gate
+					System.arraycopy(values, fanInIndex[first] * lanes, acc, 0, lanes);
+					for(int e = first + 1; e < last; ++e){
+						int in = fanInIndex[e] * lanes;
+						for(int j = 0; j < lanes; ++j)
+							acc[j] |= values[in + j];
+					}
+					break;
+				case 3://NOT gate, the last wire overrides the former ones
+					int in = fanInIndex[last - 1] * lanes;
+					for(int j = 0; j < lanes; ++j)
+						acc[j] = ~values[in + j];
+					break;
+				default://AND gate, an untyped gate also behaves as AND
+					System.arraycopy(values, fanInIndex[first] * lanes, acc, 0, lanes);
+					for(int e = first + 1; e < last; ++e){
+						int from = fanInIndex[e] * lanes;
+						for(int j = 0; j < lanes; ++j)
+							acc[j] &= values[from + j];
+					}
+					break;
+			}
+			System.arraycopy(acc, 0, values, n * lanes, lanes);
+		}
+	}
+}